@@ -0,0 +1,91 @@
+package sudoku.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import sudoku.model.Board;
+import sudoku.solver.DlxSolver;
+
+/**
+ * Throughput of the model operations: inserts, deletes, validity checks
+ * and whole-board validation at every supported size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    @Param({"4", "9", "16", "25"})
+    public int size;
+
+    /** Number of precomputed random moves, a power of two. */
+    private static final int MOVES = 1 << 12;
+
+    private Board board;
+    private Board solved;
+    private int[] rows, cols, nums;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        board = new Board(size);
+        solved = new Board(size);
+        new DlxSolver().solve(solved);
+        Random random = new Random(size);
+        rows = new int[MOVES];
+        cols = new int[MOVES];
+        nums = new int[MOVES];
+        for (int i = 0; i < MOVES; i++) {
+            rows[i] = random.nextInt(size);
+            cols[i] = random.nextInt(size);
+            nums[i] = 1 + random.nextInt(size);
+        }
+    }
+
+    @Benchmark
+    public void insert() {
+        int i = next++ & (MOVES - 1);
+        board.setElement(rows[i], cols[i], nums[i]);
+    }
+
+    @Benchmark
+    public void insertDelete() {
+        int i = next++ & (MOVES - 1);
+        board.setElement(rows[i], cols[i], nums[i]);
+        board.deleteElement(rows[i], cols[i]);
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        int i = next++ & (MOVES - 1);
+        return board.isValid(rows[i], cols[i]);
+    }
+
+    @Benchmark
+    public boolean isSolved() {
+        return solved.isSolved();
+    }
+
+    @Benchmark
+    public void validateAll(Blackhole bh) {
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                bh.consume(solved.isValid(row, col));
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package sudoku.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sudoku.model.AllDifferent;
+import sudoku.model.Board;
+import sudoku.model.Constraint;
+import sudoku.model.KillerCage;
+import sudoku.model.NeighborRule;
+
+/**
+ * Cost of a move on a 9x9 board with no variant constraints, with each
+ * kind alone, and with all of them at once.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstraintBenchmark {
+
+    @Param({"classic", "diagonal", "killer", "antiKnight", "nonConsecutive", "all"})
+    public String variant;
+
+    /** Number of precomputed random moves, a power of two. */
+    private static final int MOVES = 1 << 12;
+
+    private Board board;
+    private int[] rows, cols, nums;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        board = new Board(9, 3, 3, constraints(variant));
+        Random random = new Random(9);
+        rows = new int[MOVES];
+        cols = new int[MOVES];
+        nums = new int[MOVES];
+        for (int i = 0; i < MOVES; i++) {
+            rows[i] = random.nextInt(9);
+            cols[i] = random.nextInt(9);
+            nums[i] = random.nextInt(10);
+        }
+    }
+
+    private static Constraint[] constraints(String variant) {
+        switch (variant) {
+            case "classic":
+                return new Constraint[0];
+            case "diagonal":
+                return new Constraint[] {AllDifferent.mainDiagonal(9), AllDifferent.antiDiagonal(9)};
+            case "killer":
+                return cages();
+            case "antiKnight":
+                return new Constraint[] {NeighborRule.antiKnight()};
+            case "nonConsecutive":
+                return new Constraint[] {NeighborRule.nonConsecutive()};
+            default:
+                Constraint[] cages = cages();
+                Constraint[] all = new Constraint[cages.length + 4];
+                System.arraycopy(cages, 0, all, 0, cages.length);
+                all[cages.length] = AllDifferent.mainDiagonal(9);
+                all[cages.length + 1] = AllDifferent.antiDiagonal(9);
+                all[cages.length + 2] = NeighborRule.antiKnight();
+                all[cages.length + 3] = NeighborRule.nonConsecutive();
+                return all;
+        }
+    }
+
+    /** Cages of three cells across each row, covering the board. */
+    private static Constraint[] cages() {
+        Constraint[] cages = new Constraint[27];
+        for (int i = 0; i < 27; i++) {
+            cages[i] = new KillerCage(15, 3 * i, 3 * i + 1, 3 * i + 2);
+        }
+        return cages;
+    }
+
+    @Benchmark
+    public void move() {
+        int i = next++ & (MOVES - 1);
+        board.setElement(rows[i], cols[i], nums[i]);
+    }
+}
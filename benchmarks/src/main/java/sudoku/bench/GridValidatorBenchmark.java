@@ -0,0 +1,76 @@
+package sudoku.bench;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sudoku.model.Board;
+import sudoku.model.GridValidator;
+import sudoku.solver.DlxSolver;
+
+/**
+ * Throughput of batch grid validation, in grids per microsecond, for the
+ * scalar validator and the best one {@link GridValidator#create(int)}
+ * finds. The Vector API one is only found when the game was built with
+ * -Pvector and the benchmark runs with
+ * -jvmArgsAppend --add-modules=jdk.incubator.vector.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GridValidatorBenchmark {
+
+    /** Number of grids per batch, a multiple of 64. */
+    private static final int GRIDS = 1 << 14;
+
+    @Param({"4", "9", "12"})
+    public int size;
+
+    private byte[] grids;
+    private GridValidator scalar, best;
+
+    @Setup
+    public void setUp() {
+        Board solution = new Board(size);
+        new DlxSolver().solve(solution);
+        int cells = size * size;
+        grids = new byte[GRIDS * cells];
+        Random random = new Random(size);
+        for (int i = 0; i < GRIDS; i++) {
+            for (int cell = 0; cell < cells; cell++) {
+                grids[i * cells + cell] = (byte) solution.getElement(cell / size, cell % size);
+            }
+            if (random.nextInt(16) == 0) {
+                grids[i * cells + random.nextInt(cells)] = 0;
+            }
+        }
+        scalar = new GridValidator(size);
+        best = GridValidator.create(size);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GRIDS)
+    public BitSet scalar() {
+        return scalar.validate(grids, 0, GRIDS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GRIDS)
+    public BitSet best() {
+        return best.validate(grids, 0, GRIDS);
+    }
+}
@@ -0,0 +1,71 @@
+package sudoku.bench;
+
+import java.util.Random;
+import sudoku.model.Board;
+import sudoku.solver.Generator;
+
+/**
+ * The fixed puzzle corpus shared by the benchmarks, so that results of
+ * different runs and revisions are comparable.
+ */
+final class Puzzles {
+
+    /** Hard 9x9 puzzles from the usual solver test sets. */
+    static final String[] HARD_9 = {
+            "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..",
+            "4.....8.5.3..........7......2.....6.....8.4......1.......6.3.7.5..2.....1.4......",
+            "52...6.........7.13...........4..8..6......5...........418.........3..2...87.....",
+            "6.....8.3.4.7.................5.4.7.3..2.....1.6.......2.....5.....8.6......1....",
+            "48.3............71.2.......7.5....6....2..8.............1.76...3.....4......5....",
+            "....14....3....2...7..........9...3.6.1.............8.2.....1.4....5.6.....7.8...",
+            "......52..8.4......3...9...5.1...6..2..7........3.....6...1..........7.4.......3.",
+            "6.2.5.........3.4..........43...8....1....2........7..5..27...........81...6.....",
+    };
+
+    /** Seed of the generated corpus for sizes without a fixed list. */
+    private static final long SEED = 20181017L;
+
+    private Puzzles() {
+    }
+
+    /**
+     * This returns the corpus for a board size: the fixed 9x9 list, or
+     * puzzles generated from a fixed seed for other sizes.
+     * @param size This is the board size.
+     * @param count This is the number of generated puzzles.
+     * @return Returns the puzzles, with their clues as givens.
+     * */
+    static Board[] corpus(int size, int count) {
+        if (size == 9) {
+            Board[] boards = new Board[HARD_9.length];
+            for (int i = 0; i < boards.length; i++) {
+                boards[i] = parse(HARD_9[i]);
+            }
+            return boards;
+        }
+        Generator generator = new Generator(new Random(SEED));
+        Board[] boards = new Board[count];
+        for (int i = 0; i < count; i++) {
+            boards[i] = generator.generate(size, Generator.Difficulty.HARD);
+        }
+        return boards;
+    }
+
+    /**
+     * This parses a puzzle line, '.' or '0' for a blank.
+     * @param line This is the puzzle, row by row.
+     * @return Returns the board with its clues as givens.
+     * */
+    static Board parse(String line) {
+        int size = (int) Math.round(Math.sqrt(line.length()));
+        Board board = new Board(size);
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c >= '1' && c <= '9') {
+                board.setElement(i / size, i % size, c - '0');
+            }
+        }
+        board.fixGivens();
+        return board;
+    }
+}
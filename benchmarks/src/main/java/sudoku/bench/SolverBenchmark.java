@@ -0,0 +1,62 @@
+package sudoku.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sudoku.model.Board;
+import sudoku.solver.DlxSolver;
+
+/**
+ * Time to solve the fixed puzzle corpus of each size, one puzzle per
+ * invocation in round-robin order.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark {
+
+    @Param({"9", "16"})
+    public int size;
+
+    private Board[] puzzles;
+    private Board scratch;
+    private final DlxSolver solver = new DlxSolver();
+    private int next;
+
+    @Setup
+    public void setUp() {
+        puzzles = Puzzles.corpus(size, 8);
+        scratch = new Board(size);
+    }
+
+    @Benchmark
+    public boolean solve() {
+        Board puzzle = puzzles[next++ % puzzles.length];
+        scratch.reset();
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                if (puzzle.getElement(row, col) != 0) {
+                    scratch.setElement(row, col, puzzle.getElement(row, col));
+                }
+            }
+        }
+        return solver.solve(scratch);
+    }
+
+    @Benchmark
+    public int countToTwo() {
+        return solver.countSolutions(puzzles[next++ % puzzles.length], 2);
+    }
+}
@@ -0,0 +1,76 @@
+package sudoku.dialog;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sudoku.model.Board;
+import sudoku.solver.DlxSolver;
+
+/**
+ * Off-screen rendering of {@link BoardPanel} into a BufferedImage in
+ * headless AWT: a full paint and a paint clipped to one square. It lives in
+ * the panel's package because the panel constructor is package-private.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+
+    @Param({"4", "6", "9", "12", "16", "25", "36"})
+    public int size;
+
+    private static final int PIXELS = 500;
+
+    private BoardPanel panel;
+    private BufferedImage image;
+    private Graphics2D graphics;
+    private int square;
+
+    @Setup
+    public void setUp() {
+        Board board = new Board(size);
+        new DlxSolver().solve(board);
+        board.setElement(0, 0, board.getElement(0, 1)); //one conflict to highlight
+        panel = new BoardPanel(board, (x, y) -> { });
+        panel.setSize(PIXELS, PIXELS);
+        panel.highlightSqr = true;
+        image = new BufferedImage(PIXELS, PIXELS, BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+        square = PIXELS / size;
+        panel.paint(graphics);
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage paintFull() {
+        graphics.setClip(0, 0, PIXELS, PIXELS);
+        panel.paint(graphics);
+        return image;
+    }
+
+    @Benchmark
+    public BufferedImage paintSquare() {
+        graphics.setClip(square, square, square + 1, square + 1);
+        panel.paint(graphics);
+        return image;
+    }
+}
@@ -0,0 +1,52 @@
+package sudoku.metrics;
+
+import java.util.function.ObjLongConsumer;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for one recording of a {@link Probe}.
+ * <p>
+ * This class is compiled only by the {@code jfr} profile, which is active
+ * on JDK 11 and later, so that the rest of the game still builds and runs
+ * on Java 8; {@link Metrics} loads its {@link Emitter} reflectively when
+ * both the class and the JFR API are present.
+ */
+@Name("sudoku.Probe")
+@Label("Sudoku Probe")
+@Category("Sudoku")
+@Description("A timed operation of the Sudoku game")
+@StackTrace(false)
+class ProbeEvent extends Event {
+
+    @Label("Probe")
+    String probe;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+
+    /** Commits an event for each recording if Flight Recorder is recording it. */
+    static class Emitter implements ObjLongConsumer<Probe> {
+
+        /**
+         * This method commits an event if Flight Recorder is recording it.
+         * @param probe This is the probe recorded.
+         * @param nanos This is the duration, 0 for a count.
+         * */
+        @Override
+        public void accept(Probe probe, long nanos) {
+            ProbeEvent event = new ProbeEvent();
+            if (event.shouldCommit()) {
+                event.probe = probe.label();
+                event.elapsed = nanos;
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package sudoku.model;
+
+import java.util.Arrays;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A {@link GridValidator} using the incubating Vector API, for grids up to
+ * 15x15. Grids are checked in blocks of one grid per vector lane: a block
+ * is first transposed so that each cell of all its grids is contiguous,
+ * after which every cell costs one vector load, a variable shift turning
+ * the numbers into bits, and lane-wise ORs into the masks of its row,
+ * column and sub-grid. No lane ever needs to look at another, so there
+ * are no cross-lane reductions. Grids left over after the last whole
+ * block are checked by the scalar code.
+ * <p>
+ * This class is compiled only by the {@code vector} profile and needs
+ * {@code --add-modules jdk.incubator.vector} at run time;
+ * {@link GridValidator#create(int)} picks it up when both are present.
+ */
+public class VectorGridValidator extends GridValidator {
+
+    /** One short lane per grid; masks of up to 15 numbers fit in a short.
+     * The widest vector the CPU runs natively: 8 lanes on 128-bit SSE or
+     * NEON, 16 on AVX2, 32 on AVX-512. */
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+    private static final int LANES = SHORTS.length();
+
+    /** Fewest lanes for which the transposition pays off. */
+    private static final int MIN_LANES = 8;
+
+    private final short fullBits;
+
+    /**
+     * Create a validator for grids with sub-grids of the given shape.
+     * @param boxRows This is the height of a sub-grid.
+     * @param boxCols This is the width of a sub-grid.
+     * @throws IllegalArgumentException If the grids are larger than 15x15.
+     * @throws UnsupportedOperationException If the CPU has no vectors of
+     * at least 128 bits.
+     */
+    public VectorGridValidator(int boxRows, int boxCols) {
+        super(boxRows, boxCols);
+        if (size >= Short.SIZE) {
+            throw new IllegalArgumentException("Grids larger than 15x15 are not vectorized: " + size);
+        }
+        // a block must not span two words of failures, so LANES must divide 64
+        if (LANES < MIN_LANES || Long.SIZE % LANES != 0) {
+            throw new UnsupportedOperationException("No native vector of at least 128 bits: " + SHORTS);
+        }
+        fullBits = (short) full;
+    }
+
+    @Override
+    protected void validate(byte[] grids, int offset, int from, int to, long[] failures) {
+        short[] block = new short[cells * LANES];
+        short[] units = new short[2 * size * LANES];
+        int i = from;
+        for (; i + LANES <= to; i += LANES) {
+            // from is a multiple of 64 and LANES divides 64, so a block never spans two words
+            failures[i >>> 6] |= check(grids, offset + i * cells, block, units) << i;
+        }
+        super.validate(grids, offset, i, to, failures);
+    }
+
+    /**
+     * This checks a block of one grid per lane.
+     * @param grids This is the array holding the grids.
+     * @param at This is the index of the first cell of the first grid.
+     * @param block This is scratch space for the transposed grids.
+     * @param units This is scratch space for the column and sub-grid masks.
+     * @return Returns the failing grids of the block as bits.
+     * */
+    private long check(byte[] grids, int at, short[] block, short[] units) {
+        for (int lane = 0; lane < LANES; lane++) {
+            for (int cell = 0, from = at + lane * cells; cell < cells; cell++) {
+                block[cell * LANES + lane] = (short) (grids[from + cell] & 0xFF);
+            }
+        }
+        Arrays.fill(units, (short) 0);
+        ShortVector one = ShortVector.broadcast(SHORTS, (short) 1);
+        VectorMask<Short> wrong = SHORTS.maskAll(false);
+        for (int row = 0, cell = 0; row < size; row++) {
+            ShortVector rowBits = ShortVector.zero(SHORTS);
+            for (int col = 0; col < size; col++, cell++) {
+                ShortVector nums = ShortVector.fromArray(SHORTS, block, cell * LANES);
+                // blanks wrap around, so one unsigned compare finds every bad number
+                wrong = wrong.or(nums.sub((short) 1).compare(VectorOperators.UNSIGNED_GT, (short) (size - 1)));
+                ShortVector bits = one.lanewise(VectorOperators.LSHL, nums);
+                rowBits = rowBits.or(bits);
+                int colAt = col * LANES, boxAt = boxUnit[cell] * LANES;
+                ShortVector.fromArray(SHORTS, units, colAt).or(bits).intoArray(units, colAt);
+                ShortVector.fromArray(SHORTS, units, boxAt).or(bits).intoArray(units, boxAt);
+            }
+            wrong = wrong.or(rowBits.compare(VectorOperators.NE, fullBits));
+        }
+        for (int unit = 0; unit < 2 * size; unit++) {
+            wrong = wrong.or(ShortVector.fromArray(SHORTS, units, unit * LANES).compare(VectorOperators.NE, fullBits));
+        }
+        return wrong.toLong();
+    }
+}
@@ -0,0 +1,181 @@
+package sudoku.canon;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import sudoku.model.Board;
+
+/**
+ * An on-disk set of canonical hashes, for telling whether a puzzle or any
+ * of its equivalent forms is already known. The file is an open-addressing
+ * hash table of 64-bit keys with linear probing, memory-mapped in 1 GB
+ * segments, so a lookup touches one or two pages and costs microseconds
+ * regardless of the number of entries. The capacity is fixed when the file
+ * is created. An index is not thread-safe.
+ * <p>
+ * Only hashes are stored, so two different canonical forms with the same
+ * 64-bit hash are taken as the same puzzle; with hundreds of millions of
+ * entries the chance of that is still below one in a hundred thousand.
+ *
+ * @see Canonicalizer
+ */
+public class CanonicalIndex implements Closeable {
+
+    private static final long MAGIC = 0x5355444F4B55_4958L;
+
+    /** Header: magic, number of slots and number of entries, one long each. */
+    private static final int HEADER = 3 * Long.BYTES;
+
+    /** Number of slots per mapped segment. */
+    private static final int SEGMENT_SHIFT = 27;
+    private static final long SEGMENT_SLOTS = 1L << SEGMENT_SHIFT;
+
+    /** Share of the slots that may be filled. */
+    private static final double MAX_LOAD = 0.75;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer[] segments;
+    private final long mask;
+    private long count;
+
+    private final Canonicalizer canonicalizer;
+
+    /**
+     * Open the index file, creating it with room for the given number of
+     * puzzles if it does not exist.
+     * @param path This is the index file.
+     * @param size This is the size of the indexed boards.
+     * @param capacity This is the number of puzzles a new index must hold.
+     * @throws IOException If the file cannot be opened or is not an index.
+     */
+    public CanonicalIndex(Path path, int size, long capacity) throws IOException {
+        canonicalizer = new Canonicalizer(size);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER);
+        long slots;
+        if (header.getLong(0) == MAGIC) {
+            slots = header.getLong(Long.BYTES);
+            count = header.getLong(2 * Long.BYTES);
+        } else if (channel.size() == HEADER) {
+            slots = Long.highestOneBit((long) (Math.max(capacity, 2) / MAX_LOAD) * 2 - 1);
+            header.putLong(0, MAGIC);
+            header.putLong(Long.BYTES, slots);
+            header.putLong(2 * Long.BYTES, 0);
+        } else {
+            channel.close();
+            throw new IOException("Not a canonical index: " + path);
+        }
+        mask = slots - 1;
+        segments = new MappedByteBuffer[(int) ((slots + SEGMENT_SLOTS - 1) >>> SEGMENT_SHIFT)];
+        for (int i = 0; i < segments.length; i++) {
+            long first = (long) i << SEGMENT_SHIFT;
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                    HEADER + first * Long.BYTES, Math.min(SEGMENT_SLOTS, slots - first) * Long.BYTES);
+        }
+    }
+
+    /** Return the number of puzzles in this index.
+     * @return Returns the number of distinct hashes added. */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * This checks if a puzzle equivalent to the given board is in the index.
+     * @param board This is the puzzle to be looked up.
+     * @return Returns if an equivalent puzzle was added before.
+     * */
+    public boolean contains(Board board) {
+        return contains(canonicalizer.canonicalHash(board));
+    }
+
+    /**
+     * This method adds a puzzle unless an equivalent one is in the index.
+     * @param board This is the puzzle to be added.
+     * @return Returns true if the puzzle was new.
+     * */
+    public boolean add(Board board) {
+        return add(canonicalizer.canonicalHash(board));
+    }
+
+    /**
+     * This checks if a canonical hash is in the index.
+     * @param hash This is a hash from {@link Canonicalizer#canonicalHash(Board)}.
+     * @return Returns if the hash was added before.
+     * */
+    public boolean contains(long hash) {
+        long key = key(hash);
+        for (long slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            long stored = get(slot);
+            if (stored == key) {
+                return true;
+            }
+            if (stored == 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * This method adds a canonical hash to the index.
+     * @param hash This is a hash from {@link Canonicalizer#canonicalHash(Board)}.
+     * @return Returns true if the hash was new.
+     * @throws IllegalStateException If the index is full.
+     * */
+    public boolean add(long hash) {
+        long key = key(hash);
+        for (long slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            long stored = get(slot);
+            if (stored == key) {
+                return false;
+            }
+            if (stored == 0) {
+                if (count + 1 > MAX_LOAD * (mask + 1)) {
+                    throw new IllegalStateException("Canonical index is full");
+                }
+                put(slot, key);
+                header.putLong(2 * Long.BYTES, ++count);
+                return true;
+            }
+        }
+    }
+
+    /** Write all changes to the file. */
+    public void force() {
+        header.force();
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private long get(long slot) {
+        return segments[(int) (slot >>> SEGMENT_SHIFT)].getLong((int) (slot & (SEGMENT_SLOTS - 1)) * Long.BYTES);
+    }
+
+    private void put(long slot, long key) {
+        segments[(int) (slot >>> SEGMENT_SHIFT)].putLong((int) (slot & (SEGMENT_SLOTS - 1)) * Long.BYTES, key);
+    }
+
+    /** Keys are never 0, which marks an empty slot. */
+    private static long key(long hash) {
+        return hash == 0 ? 1 : hash;
+    }
+
+    /** Spread the key bits so that the low bits choose the slot. */
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        return key ^ (key >>> 33);
+    }
+}
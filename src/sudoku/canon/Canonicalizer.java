@@ -0,0 +1,359 @@
+package sudoku.canon;
+
+import java.util.Arrays;
+import sudoku.model.Board;
+
+/**
+ * Computes a canonical form of a board under the Sudoku symmetries:
+ * transposition, band and stack permutations, row and column permutations
+ * within bands and stacks, and relabeling of the numbers. Equivalent boards
+ * have the same canonical form.
+ * <p>
+ * The canonical form is the lexicographically smallest cell sequence, row
+ * by row, over all transforms, with numbers relabeled 1, 2, ... in order of
+ * first appearance and blanks as 0. It is found by a branch and bound over
+ * the transform choices that fixes output cells in row-major order and
+ * abandons a branch as soon as one of its cells is larger than the best
+ * complete sequence found so far, instead of trying every transform.
+ * A canonicalizer is not thread-safe.
+ */
+public class Canonicalizer {
+
+    private final int size, box;
+
+    /** Source grid, read as given or transposed. */
+    private final int[] grid;
+    private boolean transposed;
+
+    /** Best complete sequence so far, and the sequence of the current
+     * branch. A sequence lists the top band column by column, so that every
+     * column choice is compared on a whole band height, then the other rows
+     * row by row. */
+    private final int[] best, current;
+    private boolean hasBest;
+
+    /** Position at which the current branch became smaller than the best
+     * sequence, -1 if there is no best sequence yet, and NONE while the
+     * branch equals the best sequence so far. */
+    private int lessAt;
+    private static final int NONE = Integer.MAX_VALUE;
+
+    /** Number of complete sequences accepted as best, so that a choice
+     * point can tell whether its prefix now equals the best sequence. */
+    private int accepted;
+
+    /** The best sequence rearranged row by row. */
+    private final int[] canonical;
+
+    /** Source column of each output column, and source row of each output row. */
+    private final int[] colOf, rowOf;
+    private final boolean[] colUsed, rowUsed, stackUsed, bandUsed;
+
+    /** The nearest earlier line of the same band or stack equal to each
+     * line, or -1. Swapping equal lines changes nothing, so a line is only
+     * tried once every earlier copy of it is used. */
+    private final int[] rowTwin, colTwin;
+
+    /** Relabeling of source numbers, with the stack of assignments to undo. */
+    private final int[] label;
+    private final int[] assigned;
+    private int assignedCount;
+
+    /**
+     * Create a canonicalizer for boards of the given size.
+     * @param size This is the size of the boards; it must be a square.
+     */
+    public Canonicalizer(int size) {
+        this.size = size;
+        this.box = (int) Math.round(Math.sqrt(size));
+        if (box * box != size) {
+            throw new IllegalArgumentException("Size has no square sub-grids: " + size);
+        }
+        int cells = size * size;
+        grid = new int[cells];
+        best = new int[cells];
+        current = new int[cells];
+        canonical = new int[cells];
+        colOf = new int[size];
+        rowOf = new int[size];
+        colUsed = new boolean[size];
+        rowUsed = new boolean[size];
+        stackUsed = new boolean[box];
+        bandUsed = new boolean[box];
+        rowTwin = new int[size];
+        colTwin = new int[size];
+        label = new int[size + 1];
+        assigned = new int[size + 1];
+    }
+
+    /**
+     * This method computes the canonical form of a board.
+     * @param board This is a board of this canonicalizer's size.
+     * @return Returns the canonical cells row by row; the array is reused by
+     * the next call.
+     * */
+    public int[] canonicalize(Board board) {
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                grid[row * size + col] = board.getElement(row, col);
+            }
+        }
+        Arrays.fill(best, 0);
+        hasBest = false;
+        for (int t = 0; t < 2; t++) {
+            transposed = t == 1;
+            findTwins();
+            lessAt = hasBest ? NONE : -1;
+            placeTopRow(0);
+        }
+        for (int k = 0; k < size; k++) {
+            for (int i = 0; i < box; i++) {
+                canonical[i * size + k] = best[k * box + i];
+            }
+        }
+        System.arraycopy(best, box * size, canonical, box * size, (size - box) * size);
+        return canonical;
+    }
+
+    /**
+     * This method computes the 64-bit hash of a board's canonical form.
+     * @param board This is a board of this canonicalizer's size.
+     * @return Returns the same value for all equivalent boards.
+     * */
+    public long canonicalHash(Board board) {
+        return hash(canonicalize(board));
+    }
+
+    /**
+     * This method creates a board holding the canonical form of a board.
+     * @param board This is a board of this canonicalizer's size.
+     * @return Returns a new canonical board.
+     * */
+    public Board canonicalBoard(Board board) {
+        int[] cells = canonicalize(board);
+        Board canonical = new Board(size);
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] != 0) {
+                canonical.setElement(i / size, i % size, cells[i]);
+            }
+        }
+        return canonical;
+    }
+
+    /**
+     * This returns a 64-bit hash of a cell sequence.
+     * @param cells These are the cells to be hashed.
+     * @return Returns the hash.
+     * */
+    static long hash(int[] cells) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (int cell : cells) {
+            h = (h ^ cell) * 0xBF58476D1CE4E5B9L;
+            h ^= h >>> 31;
+        }
+        return h;
+    }
+
+    /**
+     * This method finds, for the rows and columns as currently read, the
+     * nearest earlier equal row or column of the same band or stack.
+     * */
+    private void findTwins() {
+        for (int a = 0; a < size; a++) {
+            rowTwin[a] = -1;
+            colTwin[a] = -1;
+            for (int b = a / box * box; b < a; b++) {
+                boolean sameRow = true, sameCol = true;
+                for (int i = 0; i < size && (sameRow || sameCol); i++) {
+                    sameRow &= cell(a, i) == cell(b, i);
+                    sameCol &= cell(i, a) == cell(i, b);
+                }
+                if (sameRow) {
+                    rowTwin[a] = b;
+                }
+                if (sameCol) {
+                    colTwin[a] = b;
+                }
+            }
+        }
+    }
+
+    /** Return if a row waits for an earlier equal row to be used first. */
+    private boolean rowWaits(int s) {
+        return rowTwin[s] >= 0 && !rowUsed[rowTwin[s]];
+    }
+
+    /** Return if a column waits for an earlier equal column to be used first. */
+    private boolean colWaits(int c) {
+        return colTwin[c] >= 0 && !colUsed[colTwin[c]];
+    }
+
+    /**
+     * This method chooses the source row of output row r of the top band,
+     * and recurses to the next row or to the columns.
+     * @param r This is the output row.
+     * */
+    private void placeTopRow(int r) {
+        if (r == box) {
+            placeColumn(0);
+            return;
+        }
+        int from = r == 0 ? 0 : rowOf[0] / box * box;
+        int to = r == 0 ? size : from + box;
+        for (int s = from; s < to; s++) {
+            if (rowUsed[s] || rowWaits(s)) {
+                continue;
+            }
+            rowUsed[s] = true;
+            rowOf[r] = s;
+            if (r == 0) {
+                bandUsed[s / box] = true;
+            }
+            placeTopRow(r + 1);
+            if (r == 0) {
+                bandUsed[s / box] = false;
+            }
+            rowUsed[s] = false;
+        }
+    }
+
+    /**
+     * This method chooses the source column of output column k, which fixes
+     * the cells of column k in the top band, and recurses to the next column
+     * or to the rows below the top band.
+     * @param k This is the output column.
+     * */
+    private void placeColumn(int k) {
+        if (k == size) {
+            placeRow(box);
+            return;
+        }
+        int from, to;
+        if (k % box == 0) {
+            from = 0;
+            to = size; //any column of an unused stack opens the output stack
+        } else {
+            from = colOf[k - 1] / box * box;
+            to = from + box;
+        }
+        int entry = lessAt, seen = accepted;
+        for (int c = from; c < to; c++) {
+            if (colUsed[c] || colWaits(c) || (k % box == 0 && stackUsed[c / box])) {
+                continue;
+            }
+            // once a completion was accepted below, this prefix equals the best
+            lessAt = accepted != seen ? NONE : entry;
+            int mark = assignedCount;
+            boolean keep = true;
+            for (int i = 0; i < box && keep; i++) {
+                keep = emit(k * box + i, cell(rowOf[i], c));
+            }
+            if (keep) {
+                colUsed[c] = true;
+                colOf[k] = c;
+                if (k % box == 0) {
+                    stackUsed[c / box] = true;
+                }
+                placeColumn(k + 1);
+                if (k % box == 0) {
+                    stackUsed[c / box] = false;
+                }
+                colUsed[c] = false;
+            }
+            undo(mark);
+        }
+        lessAt = accepted != seen ? NONE : entry;
+    }
+
+    /**
+     * This method chooses the source row of output row r, which fixes the
+     * whole output row, and recurses to the next row.
+     * @param r This is the output row.
+     * */
+    private void placeRow(int r) {
+        if (r == size) {
+            if (lessAt != NONE) {
+                System.arraycopy(current, 0, best, 0, best.length);
+                hasBest = true;
+                accepted++;
+            }
+            return;
+        }
+        int from, to;
+        if (r % box == 0) {
+            from = 0;
+            to = size;
+        } else {
+            from = rowOf[r - 1] / box * box;
+            to = from + box;
+        }
+        int entry = lessAt, seen = accepted;
+        for (int s = from; s < to; s++) {
+            if (rowUsed[s] || rowWaits(s) || (r % box == 0 && bandUsed[s / box])) {
+                continue;
+            }
+            lessAt = accepted != seen ? NONE : entry;
+            int mark = assignedCount;
+            boolean keep = true;
+            for (int k = 0; k < size && keep; k++) {
+                keep = emit(r * size + k, cell(s, colOf[k])); //row-major below the top band
+            }
+            if (keep) {
+                rowUsed[s] = true;
+                rowOf[r] = s;
+                if (r % box == 0) {
+                    bandUsed[s / box] = true;
+                }
+                placeRow(r + 1);
+                if (r % box == 0) {
+                    bandUsed[s / box] = false;
+                }
+                rowUsed[s] = false;
+            }
+            undo(mark);
+        }
+        lessAt = accepted != seen ? NONE : entry;
+    }
+
+    /**
+     * This method relabels a source number at an output position of the
+     * current branch and compares it with the best sequence; the best
+     * sequence itself only changes once a branch is complete.
+     * @param position This is the output position.
+     * @param num This is the source number, 0 for a blank.
+     * @return Returns false if the branch is worse than the best sequence.
+     * */
+    private boolean emit(int position, int num) {
+        int value = 0;
+        if (num != 0) {
+            if (label[num] == 0) {
+                label[num] = assignedCount + 1;
+                assigned[assignedCount++] = num;
+            }
+            value = label[num];
+        }
+        current[position] = value;
+        if (lessAt < position) {
+            return true;
+        }
+        if (value < best[position]) {
+            lessAt = position;
+            return true;
+        }
+        return value == best[position];
+    }
+
+    /**
+     * This method removes the labels assigned since the given mark.
+     * @param mark This is the number of labels to keep.
+     * */
+    private void undo(int mark) {
+        while (assignedCount > mark) {
+            label[assigned[--assignedCount]] = 0;
+        }
+    }
+
+    private int cell(int row, int col) {
+        return transposed ? grid[col * size + row] : grid[row * size + col];
+    }
+}
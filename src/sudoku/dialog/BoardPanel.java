@@ -3,11 +3,13 @@ package sudoku.dialog;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.io.InputStream;
+import java.awt.image.BufferedImage;
 import javax.swing.*;
+import sudoku.metrics.Metrics;
+import sudoku.metrics.Probe;
+import sudoku.metrics.StartupReport;
 import sudoku.model.Board;
-import sun.audio.AudioPlayer;
-import sun.audio.AudioStream;
+import sudoku.model.BoardListener;
 
 
 /**
@@ -46,14 +48,51 @@ public class BoardPanel extends JPanel {
      */
     private int squareSize;
     public int sx, sy;
-    public boolean highlightSqr, invalid, reset, win;
+
+    /** Cached background and grid lines, and the sub-grid shape it was drawn for. */
+    private BufferedImage grid;
+    private int gridRows, gridCols;
+
+    /** Range of rows and columns intersecting the clip of the current paint. */
+    private int rowFrom, rowTo, colFrom, colTo;
+
+    /** Repaints the squares reported changed by the board. */
+    private final BoardListener changes = new BoardListener() {
+        @Override
+        public void cellSet(Board board, int row, int col, int oldNum, int num) {
+            repaintSquare(col, row);
+        }
+
+        @Override
+        public void cellCleared(Board board, int row, int col, int oldNum) {
+            repaintSquare(col, row);
+        }
+
+        @Override
+        public void validityChanged(Board board, int row, int col, boolean valid) {
+            repaintSquare(col, row);
+        }
+
+        @Override
+        public void reset(Board board) {
+            repaint();
+        }
+    };
+
+    /** Text of each number, created once. */
+    private String[] labels = new String[0];
+
+    /** Fonts of entered and given numbers, and the square size they fit. */
+    private Font plainFont, boldFont;
+    private int fontSquare;
+    public boolean highlightSqr;
 
     /**
      * Create a new board panel to display the given board.
      */
     BoardPanel(Board board, ClickListener listener) {
 //        System.out.println("BoardPanel");
-        this.board = board;
+        setBoard(board);
         addMouseListener(new MouseAdapter() {
             public void mouseClicked(MouseEvent e) {
                 int xy = locateSquare(e.getX(), e.getY());
@@ -71,7 +110,11 @@ public class BoardPanel extends JPanel {
      */
     public void setBoard(Board board) {
 //        System.out.println("setBoard");
+        if (this.board != null) {
+            this.board.removeListener(changes);
+        }
         this.board = board;
+        board.addListener(changes);
     }
 
     /**
@@ -92,26 +135,68 @@ public class BoardPanel extends JPanel {
     }
 
     /**
-     * Draw the associated board.
+     * Draw the associated board. Only the cells intersecting the clip are
+     * drawn over the cached grid layer.
      */
     @Override
     public void paint(Graphics g) {
 //        System.out.println("paint");
+        long start = Metrics.start();
         super.paint(g);
         // determine the square size
         Dimension dim = getSize();
-        squareSize = Math.min(dim.width, dim.height) / board.size();
-        // draw background
-        g.setColor(boardColor);
-        g.fillRect(0, 0, squareSize * board.size(), squareSize * board.size());
-        // WRITE YOUR CODE HERE ...
-        playSound();
+        squareSize = Math.max(1, Math.min(dim.width, dim.height) / board.size());
+        // draw background and grid lines
+        g.drawImage(gridLayer(), 0, 0, null);
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, dim.width, dim.height);
+        }
+        int last = board.size() - 1;
+        rowFrom = Math.min(clip.y / squareSize, last + 1);
+        rowTo = Math.min((clip.y + clip.height) / squareSize, last);
+        colFrom = Math.min(clip.x / squareSize, last + 1);
+        colTo = Math.min((clip.x + clip.width) / squareSize, last);
         highlightInvalid(g);
-        drawNumbers(g);
         highlightSelected(g);
-        insideLines(g);
-        outsideBox(g);
-        solved();
+        drawNumbers(g);
+        Metrics.record(Probe.PAINT, start);
+        StartupReport.painted();
+    }
+
+    /**
+     * Repaint the square at the given column and row only.
+     * @param x 0-based column index of the square.
+     * @param y 0-based row index of the square.
+     */
+    public void repaintSquare(int x, int y) {
+        Metrics.count(Probe.REPAINT);
+        repaint(x * squareSize, y * squareSize, squareSize + 1, squareSize + 1);
+    }
+
+    /**
+     * This method returns the cached image of the background and the grid
+     * lines, rendering it again only if the square size or the board
+     * geometry changed.
+     * @return Returns the grid layer for the current size.
+     * */
+    private BufferedImage gridLayer() {
+        int length = squareSize * board.size() + 1;
+        if (grid == null || grid.getWidth() != length
+                || gridRows != board.boxRows() || gridCols != board.boxCols()) {
+            grid = new BufferedImage(length, length, BufferedImage.TYPE_INT_RGB);
+            gridRows = board.boxRows();
+            gridCols = board.boxCols();
+            Graphics2D g = grid.createGraphics();
+            g.setColor(getBackground());
+            g.fillRect(0, 0, length, length);
+            g.setColor(boardColor);
+            g.fillRect(0, 0, squareSize * board.size(), squareSize * board.size());
+            insideLines(g);
+            outsideBox(g);
+            g.dispose();
+        }
+        return grid;
     }
 
     /**
@@ -120,57 +205,59 @@ public class BoardPanel extends JPanel {
      * @param g This method receives the Graphics class to draw the numbers.
      * */
     private void drawNumbers(Graphics g) {
-        for (int i = 0; i < board.size(); i++) {
-            for (int j = 0; j < board.size(); j++) {
+        Font font = g.getFont();
+        if (plainFont == null || fontSquare != squareSize) {
+            //shrink the font when squares get too small for two digits
+            plainFont = squareSize >= 24 ? font : font.deriveFont(Math.max(6f, squareSize / 2f));
+            boldFont = plainFont.deriveFont(Font.BOLD);
+            fontSquare = squareSize;
+        }
+        for (int i = rowFrom; i <= rowTo; i++) {
+            for (int j = colFrom; j <= colTo; j++) {
+                int num = board.getElement(i, j);
                 //if the number in the matrix are not 0's
-                if (board.getElement(i, j) != 0) {
-                    //if valid
-                    if (board.isValid(i, j)) {
-                        g.setColor(Color.WHITE);
-                        g.drawString(String.valueOf(board.getElement(i, j)), (j * squareSize) + (squareSize / 2 - 3), (i * squareSize) + (squareSize / 2 + 4));
-                    }
-                    //if not valid
-                    else if (!board.isValid(i, j)) {
-                        g.setColor(Color.BLACK);
-                        g.drawString(String.valueOf(board.getElement(i,j)), (j*squareSize)+(squareSize/2-3), (i*squareSize)+(squareSize/2+4));
-                    }
+                if (num != 0) {
+                    //givens of the puzzle are bold
+                    g.setFont(board.isGiven(i, j) ? boldFont : plainFont);
+                    //white if valid, black if not
+                    g.setColor(board.isValid(i, j) ? Color.WHITE : Color.BLACK);
+                    //centered in the square
+                    FontMetrics metrics = g.getFontMetrics();
+                    String label = label(num);
+                    g.drawString(label, j * squareSize + (squareSize - metrics.stringWidth(label)) / 2 + 1,
+                            i * squareSize + (squareSize + metrics.getAscent() - metrics.getDescent()) / 2 + 1);
                 }
             }
         }
+        g.setFont(font);
     }
 
     /**
-     * This method highlights a number background if the entry was invalid.
-     * @param g This method receives the Graphics class in order to draw the square.
+     * This method returns the text drawn for a number without allocating.
+     * @param num This is the number in the matrix.
+     * @return Returns the label of the number.
      * */
-    private void highlightInvalid(Graphics g) {
-        for (int i = 0; i < board.size(); i++) {
-            for (int j = 0; j < board.size(); j++) {
-                if (!board.isValid(i,j) && board.getElement(i, j) != 0) {
-                    g.setColor(Color.WHITE);
-                    g.fillRect(j*squareSize, i*squareSize, squareSize, squareSize);
-                }
-            }
+    private String label(int num) {
+        if (labels.length <= num) {
+            labels = new String[Math.max(num + 1, board.size() + 1)];
         }
+        if (labels[num] == null) {
+            labels[num] = String.valueOf(num);
+        }
+        return labels[num];
     }
 
     /**
-     * This method checks if all the numbers in the matrix meet the game rules.
-     * If so, prompts the user to start a new game or to quit.
+     * This method highlights a number background if the entry was invalid.
+     * @param g This method receives the Graphics class in order to draw the square.
      * */
-    private void solved() {
-        if (board.isSolved()) {
-            win = true;
-            playSound();
-            Object[] options = {"New Game", "Exit"};
-            int solved = JOptionPane.showOptionDialog(null,"You Won!",
-                    "Congratulations", JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE,
-                    null, options, options[1]);
-            if (solved == JOptionPane.YES_OPTION) {
-                board.reset();
-            }
-            else {
-                System.exit(0);
+    private void highlightInvalid(Graphics g) {
+        g.setColor(Color.WHITE);
+        for (int i = rowFrom; i <= rowTo; i++) {
+            for (int j = colFrom; j <= colTo; j++) {
+                if (!board.isValid(i,j) && board.getElement(i, j) != 0) {
+                    g.fillRect(j*squareSize + 1, i*squareSize + 1, squareSize - 1, squareSize - 1);
+                }
             }
         }
     }
@@ -181,17 +268,14 @@ public class BoardPanel extends JPanel {
      * */
     private void outsideBox(Graphics g) {
 //        System.out.println("outsideBox");
+        int length = squareSize * board.size();
         g.setColor(Color.BLACK);
-        g.drawLine(0, 0, squareSize * board.size(), 0);             //top line
-        g.drawLine(0, 0, 0, squareSize * board.size());             //left line
-        g.drawLine(0, squareSize * board.size(), squareSize * board.size(), squareSize * board.size()); //bottom line
-        g.drawLine(squareSize * board.size(), 0, squareSize * board.size(), squareSize * board.size()); //right line
-        /*this draw the grid in the rectangle*/
-        for (int i = 0; i < 276; i++) {
-            if ((i % (squareSize * Math.sqrt(board.size())) == 0)) {
-                g.drawLine(i, 0, i, squareSize * board.size());
-                g.drawLine(0, i, squareSize * board.size(), i); //bottom line
-            }
+        /*this draw the sub-grid borders, including the outside box*/
+        for (int i = 0; i <= board.size(); i += board.boxCols()) {
+            g.drawLine(i * squareSize, 0, i * squareSize, length);
+        }
+        for (int i = 0; i <= board.size(); i += board.boxRows()) {
+            g.drawLine(0, i * squareSize, length, i * squareSize);
         }
     }
 
@@ -201,41 +285,11 @@ public class BoardPanel extends JPanel {
      * */
     private void insideLines(Graphics g) {
 //        System.out.println("insideLines");
+        int length = squareSize * board.size();
         g.setColor(Color.gray);
-        for (int i = 0; i < 276; i = i + squareSize) {
-            g.drawLine(i, 0, i, squareSize * board.size());
-            g.drawLine(0, i, squareSize * board.size(), i); //bottom line
-
-        }
-    }
-
-    /**
-     * This method plays a sound depending on which variable was set to true..
-     * */
-    private void playSound() {
-        try {
-            if(invalid) {
-                InputStream song1 = getClass().getResourceAsStream("/sound/error.wav");
-                AudioStream audioStream = new AudioStream(song1);
-                AudioPlayer.player.start(audioStream);
-                invalid = false;
-            }
-            else if(reset) {
-                InputStream song1 = getClass().getResourceAsStream("/sound/new.wav");
-                AudioStream audioStream = new AudioStream(song1);
-                AudioPlayer.player.start(audioStream);
-                reset = false;
-            }
-            else if(win) {
-                InputStream song1 = getClass().getResourceAsStream("/sound/win.wav");
-                AudioStream audioStream = new AudioStream(song1);
-                AudioPlayer.player.start(audioStream);
-                win = false;
-            }
-        }
-        catch(Exception ex) {
-            System.out.println("Error with playing sound.");
-            ex.printStackTrace();
+        for (int i = 0; i <= length; i = i + squareSize) {
+            g.drawLine(i, 0, i, length);
+            g.drawLine(0, i, length, i); //bottom line
         }
     }
 
@@ -245,10 +299,9 @@ public class BoardPanel extends JPanel {
     * */
     private void highlightSelected(Graphics g) {
 //        System.out.println("actions");
-        if (highlightSqr) {
+        if (highlightSqr && sy >= rowFrom && sy <= rowTo && sx >= colFrom && sx <= colTo) {
             g.setColor(Color.cyan);
-            g.fillRect(sx*squareSize, sy*squareSize, squareSize, squareSize);
-            highlightSqr = false;
+            g.fillRect(sx*squareSize + 1, sy*squareSize + 1, squareSize - 1, squareSize - 1);
         }
     }
 }
\ No newline at end of file
@@ -1,22 +1,35 @@
 package sudoku.dialog;
 
-import java.applet.AudioClip;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.GridLayout;
 import java.awt.Insets;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.net.URL;
-import java.util.Objects;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.Clip;
-import javax.sound.sampled.DataLine;
 import javax.swing.*;
-import  sun.audio.*;    //import the sun.audio package
 import  java.io.*;
+import sudoku.io.AutoSaver;
+import sudoku.io.GameStore;
+import sudoku.io.MoveRecorder;
+import sudoku.metrics.EventQueueMonitor;
+import sudoku.metrics.StartupReport;
 import sudoku.model.Board;
+import sudoku.model.BoardListener;
+import sudoku.model.MoveJournal;
+import sudoku.solver.CandidateEngine;
+import sudoku.solver.Generator;
+import sudoku.solver.Hint;
+import sudoku.solver.PuzzlePool;
+import sudoku.sound.SoundEngine;
 
 /**
  * A dialog template for playing simple Sudoku games.
@@ -29,35 +42,189 @@ import sudoku.model.Board;
 public class SudokuDialog extends JFrame {
 
     /** Default dimension of the dialog. */
-    private final static Dimension DEFAULT_SIZE = new Dimension(310, 430);
+    private final static Dimension DEFAULT_SIZE = new Dimension(310, 450);
     private final static String IMAGE_DIR = "/image/";
 
+    /** Board sizes offered for new games. */
+    private final static int[] SIZES = {4, 6, 9, 12, 16, 25, 36};
+
+    /** Smallest square, in pixels, of boards too large for the default dimension. */
+    private final static int MIN_SQUARE = 24;
+
+    /** Time in milliseconds within which typed digits form one number. */
+    private final static long TYPING_DELAY = 800;
+
+    /** File holding the game in progress, resumed at startup. */
+    private final static Path SAVE_FILE = Paths.get(System.getProperty("user.home"), ".sudoku", "game.sav");
+
+    /** Directory of the logs of recorded game sessions. */
+    private final static Path MOVE_LOG_DIR = Paths.get(System.getProperty("user.home"), ".sudoku", "moves");
+
+    /** Time in milliseconds after a move before the game is saved. */
+    private final static int AUTOSAVE_DELAY = 1000;
+
+    /** Time in milliseconds to wait for the first paint before loading
+     * resources anyway, as a frame started minimized is never painted. */
+    private final static int PAINT_TIMEOUT = 5000;
+
     /** Sudoku board. */
     private Board board;
 
+    /** Pencil marks of the board, for hints. */
+    private CandidateEngine candidates;
+
+    /** Moves of the current game, for undo and redo. */
+    private MoveJournal journal;
+
     /* Special panel to display a Sudoku board. */
     private BoardPanel boardPanel;
 
+    /** Puzzles generated in the background for new games. */
+    private final PuzzlePool puzzles = new PuzzlePool(4, Generator.Difficulty.MEDIUM);
+
+    /** Writes the game in progress in the background. */
+    private final AutoSaver autoSaver = new AutoSaver(SAVE_FILE);
+
+    /** Records the player's actions for analysis and replay. */
+    private final MoveRecorder recorder = new MoveRecorder(MOVE_LOG_DIR);
+
+    /** Saves the game once moves stop for {@link #AUTOSAVE_DELAY}. */
+    private final Timer autosaveTimer = new Timer(AUTOSAVE_DELAY, e -> autosave());
+
+    /** Playing time of the game before this session, and when this session started. */
+    private long playedBefore;
+    private long startedAt = System.currentTimeMillis();
+
+    /** Feedback sounds, decoded once in the background at startup. */
+    private final SoundEngine sounds = new SoundEngine();
+
+    /** Plays feedback sounds and prompts for a new game on model events. */
+    private final BoardListener feedback = new BoardListener() {
+        @Override
+        public void cellSet(Board b, int row, int col, int oldNum, int num) {
+            if (!b.isValid(row, col)) {
+                sounds.play(SoundEngine.Sound.ERROR);
+            }
+            autosaveTimer.restart();
+        }
+
+        @Override
+        public void cellCleared(Board b, int row, int col, int oldNum) {
+            autosaveTimer.restart();
+        }
+
+        @Override
+        public void solved(Board b) {
+            sounds.play(SoundEngine.Sound.WIN);
+            SwingUtilities.invokeLater(SudokuDialog.this::solved);
+        }
+    };
+
     /** Message bar to display various messages. */
     private JLabel msgBar = new JLabel("");
 
+    /** Buttons for the numbers of the current board size. */
+    private final JPanel numberButtons = new JPanel();
+
+    /** Number being typed, and when its last digit was typed. */
+    private int typed;
+    private long typedAt;
+
     /** Create a new dialog. */
     private SudokuDialog() {
     	this(DEFAULT_SIZE);
     }
 
-    /** Create a new dialog of the given screen dimension. */
+    /** Create a new dialog of the given screen dimension. Only what the
+     * first frame needs is done here; see {@link #loadResources()}. */
     private SudokuDialog(Dimension dim) {
         super("Sudoku");
 //        System.out.println("Sudoku Dialog Dimension");
+        long start = StartupReport.start();
         setSize(dim);
-        board = new Board(9);
+        GameStore.SavedGame saved = resume();
+        StartupReport.phase("resume", start);
+        start = StartupReport.start();
+        board = saved == null ? new Board(9) : saved.board();
+        board.addListener(feedback);
+        candidates = new CandidateEngine(board);
+        journal = new MoveJournal(board);
         boardPanel = new BoardPanel(board, this::boardClicked);
         configureUI();
+        autosaveTimer.setRepeats(false);
+        if (saved != null) {
+            saved.restoreJournal(journal);
+            playedBefore = saved.elapsedMillis();
+            fitWindow();
+            showMessage("Game resumed");
+        }
+        // after the journal is restored, so that undo can be played back
+        recorder.start(board, journal);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                autosaveTimer.stop();
+                autosave();
+                autoSaver.close();
+                recorder.close();
+            }
+        });
         //setLocationRelativeTo(null);
         setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        StartupReport.phase("build window", start);
+        start = StartupReport.start();
         setVisible(true);
+        StartupReport.phase("show window", start);
         //setResizable(false);
+        loadResources();
+    }
+
+    /**
+     * Load the icon, the sounds and the first puzzles in parallel on
+     * background threads once the board has been painted, or after
+     * {@link #PAINT_TIMEOUT} at the latest, and report the startup timings
+     * when all are done.
+     */
+    private void loadResources() {
+        ExecutorService loader = Executors.newFixedThreadPool(3, r -> {
+            Thread thread = new Thread(r, "startup-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletableFuture<Void> painted = new CompletableFuture<>();
+        Timer paintTimeout = new Timer(PAINT_TIMEOUT, e -> {
+            if (painted.complete(null)) {
+                StartupReport.milestone("paint timeout");
+            }
+        });
+        paintTimeout.setRepeats(false);
+        paintTimeout.start();
+        StartupReport.firstPaint().thenRun(() -> {
+            paintTimeout.stop();
+            painted.complete(null);
+        });
+        CompletableFuture<Void> icon = painted.thenRunAsync(() -> {
+            long start = StartupReport.start();
+            ImageIcon image = createImageIcon();
+            if (image != null) {
+                SwingUtilities.invokeLater(() -> setIconImage(image.getImage()));
+            }
+            StartupReport.phase("icon", start);
+        }, loader);
+        CompletableFuture<Void> sound = painted.thenRunAsync(() -> {
+            long start = StartupReport.start();
+            sounds.load();
+            StartupReport.phase("sounds", start);
+        }, loader);
+        CompletableFuture<Void> pool = painted.thenComposeAsync(v -> {
+            long start = StartupReport.start();
+            // the phase lasts until the generated puzzles are in the pool
+            return puzzles.prefill(4, 9).whenComplete((done, e) -> StartupReport.phase("puzzle pool", start));
+        }, loader);
+        CompletableFuture.allOf(icon, sound, pool).whenComplete((done, e) -> {
+            loader.shutdown();
+            StartupReport.report();
+        });
     }
 
     /**
@@ -67,10 +234,13 @@ public class SudokuDialog extends JFrame {
      */
     private void boardClicked(int x, int y) {
 //        System.out.println("boardClicked");
+        recorder.record(MoveRecorder.Kind.SELECT, y, x, 0);
+        boardPanel.repaintSquare(boardPanel.sx, boardPanel.sy);
         boardPanel.sx = x;
         boardPanel.sy = y;
+        typed = 0;
         boardPanel.highlightSqr = true;
-        boardPanel.repaint();
+        boardPanel.repaintSquare(x, y);
     	showMessage(String.format("Board clicked: x = %d, y = %d",  x, y));
     }
     
@@ -80,18 +250,76 @@ public class SudokuDialog extends JFrame {
      */
     private void numberClicked(int number) {
 //        System.out.println("numberClicked");
+        recorder.record(MoveRecorder.Kind.NUMBER, boardPanel.sy, boardPanel.sx, number);
+        if (board.isGiven(boardPanel.sy, boardPanel.sx)) {
+            showMessage("Given numbers cannot be changed");
+            return;
+        }
         if (number == 0) {
             board.deleteElement(boardPanel.sy, boardPanel.sx);
-            boardPanel.setBoard(board);
             showMessage("Number Deleted");
         }
         else {
             board.setElement(boardPanel.sy, boardPanel.sx, number);
-            boardPanel.setBoard(board);
-            boardPanel.invalid = !board.isValid(boardPanel.sy, boardPanel.sx);
             showMessage(String.format("Inserted Number %d", number));
         }
-        boardPanel.repaint();
+    }
+
+    /**
+     * Callback to be invoked when the hint button is clicked. Selects the
+     * next cell that can be filled by logic and tells which number goes
+     * there.
+     */
+    private void hintClicked() {
+        if (board.hasConflicts()) {
+            showMessage("Fix the conflicting numbers first");
+            return;
+        }
+        Hint hint = candidates.findHint();
+        if (hint == null) {
+            showMessage(candidates.hasContradiction()
+                    ? "A number on the board is wrong" : "No hint available");
+            return;
+        }
+        boardClicked(hint.col(), hint.row());
+        showMessage("Hint: " + hint);
+    }
+
+    /**
+     * Callback to be invoked when undo is chosen: takes back the last move.
+     */
+    private void undoClicked() {
+        recorder.record(MoveRecorder.Kind.UNDO, 0, 0, 0);
+        showMessage(journal.undo() ? "Move undone" : "Nothing to undo");
+    }
+
+    /**
+     * Callback to be invoked when redo is chosen: makes again the last
+     * move taken back.
+     */
+    private void redoClicked() {
+        recorder.record(MoveRecorder.Kind.REDO, 0, 0, 0);
+        showMessage(journal.redo() ? "Move redone" : "Nothing to redo");
+    }
+
+    /**
+     * This method congratulates the player and prompts the user to start
+     * a new game or to quit.
+     * */
+    private void solved() {
+        autosaveTimer.stop();
+        autoSaver.delete();
+        Object[] options = {"New Game", "Exit"};
+        int solved = JOptionPane.showOptionDialog(null,"You Won!",
+                "Congratulations", JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE,
+                null, options, options[1]);
+        if (solved == JOptionPane.YES_OPTION) {
+            newGame(board.size());
+        }
+        else {
+            recorder.close();
+            System.exit(0);
+        }
     }
 
     /**
@@ -99,19 +327,81 @@ public class SudokuDialog extends JFrame {
      * If the current game is over, start a new game of the given size;
      * otherwise, prompt the user for a confirmation and then proceed
      * accordingly.
-     * @param size Requested puzzle size, either 4 or 9.
+     * @param size Requested puzzle size, one of {@link #SIZES}.
      */
     private void newClicked(int size)  {
+        recorder.record(MoveRecorder.Kind.NEW, size, 0, 0);
         int newGame = JOptionPane.showConfirmDialog(null, "Delete Progress", "New Game", JOptionPane.YES_NO_OPTION);
         if (newGame == JOptionPane.YES_NO_OPTION) {
-            board = new Board(size);
-            boardPanel.setBoard(board);
-            boardPanel.repaint();
-            boardPanel.reset = true;
-            showMessage("New Game Board: " + size);
+            newGame(size);
         }
     }
 
+    /**
+     * Start a new game of the given size as soon as a puzzle is available.
+     * @param size Requested puzzle size.
+     */
+    private void newGame(int size) {
+        CompletableFuture<Board> puzzle = puzzles.take(size);
+        if (puzzle.isDone()) {
+            startGame(puzzle.join());
+        }
+        else {
+            showMessage("Generating puzzle...");
+            puzzle.thenAccept(b -> SwingUtilities.invokeLater(() -> startGame(b)));
+        }
+    }
+
+    /**
+     * Start a new game on the given puzzle.
+     * @param puzzle Board whose givens are the clues of the new game.
+     */
+    private void startGame(Board puzzle) {
+        board.removeListener(feedback);
+        candidates.close();
+        journal.close();
+        board = puzzle;
+        board.addListener(feedback);
+        candidates = new CandidateEngine(board);
+        journal = new MoveJournal(board);
+        recorder.start(board);
+        playedBefore = 0;
+        startedAt = System.currentTimeMillis();
+        autosaveTimer.restart();
+        if (numberButtons.getComponentCount() != board.size() + 1) {
+            makeNumberButtons();
+            fitWindow();
+        }
+        boardPanel.sx = boardPanel.sy = 0;
+        boardPanel.highlightSqr = false;
+        boardPanel.setBoard(board);
+        boardPanel.repaint();
+        sounds.play(SoundEngine.Sound.NEW);
+        showMessage("New Game Board: " + board.size());
+    }
+
+    /**
+     * Read the game saved by the last session.
+     * @return Saved game, or null if there is none or it cannot be read.
+     */
+    private static GameStore.SavedGame resume() {
+        if (!SAVE_FILE.toFile().exists()) {
+            return null;
+        }
+        try {
+            return GameStore.read(SAVE_FILE);
+        } catch (IOException e) {
+            System.err.println("Cannot resume game: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Hand the current game to the background saver. */
+    private void autosave() {
+        long elapsed = playedBefore + System.currentTimeMillis() - startedAt;
+        autoSaver.save(GameStore.encode(board, journal, elapsed));
+    }
+
     /**
      * Display the given string in the message bar.
      * @param msg Message to be displayed.
@@ -123,8 +413,8 @@ public class SudokuDialog extends JFrame {
     /** Configure the UI. */
     private void configureUI() {
 //        System.out.println("configureUI");
-        setIconImage(Objects.requireNonNull(createImageIcon()).getImage());
         setLayout(new BorderLayout());
+        setJMenuBar(makeMenuBar());
         JPanel buttons = makeControlPanel();
         // boarder: top, left, bottom, right
         buttons.setBorder(BorderFactory.createEmptyBorder(10,16,0,16));
@@ -136,22 +426,134 @@ public class SudokuDialog extends JFrame {
         add(board, BorderLayout.CENTER);
         msgBar.setBorder(BorderFactory.createEmptyBorder(10,16,10,0));
         add(msgBar, BorderLayout.SOUTH);
+        installKeys();
+    }
+
+    /**
+     * Resize the window for the current board: the default dimension up to
+     * 9x9, and squares of at least {@link #MIN_SQUARE} pixels beyond.
+     */
+    private void fitWindow() {
+        if (board.size() * MIN_SQUARE <= DEFAULT_SIZE.width - 32) {
+            boardPanel.setPreferredSize(null);
+            setSize(DEFAULT_SIZE);
+        }
+        else {
+            int length = board.size() * MIN_SQUARE + 1;
+            boardPanel.setPreferredSize(new Dimension(length, length));
+            pack();
+        }
+        validate();
+    }
+
+    /**
+     * Bind the keyboard: digits enter numbers, with digits typed in quick
+     * succession forming one number on boards larger than 9x9; 0, X,
+     * backspace and delete clear the selected square; and the arrow keys
+     * move the selection.
+     */
+    private void installKeys() {
+        InputMap keys = getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
+        ActionMap actions = getRootPane().getActionMap();
+        for (int digit = 0; digit <= 9; digit++) {
+            int d = digit;
+            keys.put(KeyStroke.getKeyStroke((char) ('0' + digit)), "digit" + digit);
+            actions.put("digit" + digit, action(() -> digitTyped(d)));
+        }
+        for (String key : new String[] {"BACK_SPACE", "DELETE", "typed x", "typed X"}) {
+            keys.put(KeyStroke.getKeyStroke(key), "clear");
+        }
+        actions.put("clear", action(() -> numberClicked(0)));
+        int[][] moves = {{KeyEvent.VK_LEFT, -1, 0}, {KeyEvent.VK_RIGHT, 1, 0},
+                {KeyEvent.VK_UP, 0, -1}, {KeyEvent.VK_DOWN, 0, 1}};
+        for (int[] move : moves) {
+            keys.put(KeyStroke.getKeyStroke(move[0], 0), "move" + move[0]);
+            actions.put("move" + move[0], action(() -> boardClicked(
+                    Math.floorMod(boardPanel.sx + move[1], board.size()),
+                    Math.floorMod(boardPanel.sy + move[2], board.size()))));
+        }
+    }
+
+    /** Wrap a callback as a Swing action. */
+    private static Action action(Runnable callback) {
+        return new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                callback.run();
+            }
+        };
+    }
+
+    /**
+     * Callback to be invoked when a digit is typed. A digit typed soon
+     * after another extends the number if the result is still on the
+     * board, so that "1" then "2" enters 12.
+     * @param digit Typed digit.
+     */
+    private void digitTyped(int digit) {
+        long now = System.currentTimeMillis();
+        int number = typed * 10 + digit;
+        if (now - typedAt > TYPING_DELAY || typed == 0 || number > board.size()) {
+            number = digit;
+        }
+        typed = number;
+        typedAt = now;
+        if (number <= board.size()) {
+            numberClicked(number);
+        }
     }
       
+    /** Create the menu bar, with undo (Ctrl-Z) and redo (Ctrl-Y). */
+    private JMenuBar makeMenuBar() {
+        JMenu edit = new JMenu("Edit");
+        JMenuItem undo = new JMenuItem("Undo");
+        undo.setAccelerator(KeyStroke.getKeyStroke("control Z"));
+        undo.addActionListener(e -> undoClicked());
+        edit.add(undo);
+        JMenuItem redo = new JMenuItem("Redo");
+        redo.setAccelerator(KeyStroke.getKeyStroke("control Y"));
+        redo.addActionListener(e -> redoClicked());
+        edit.add(redo);
+        JMenuBar menuBar = new JMenuBar();
+        menuBar.add(edit);
+        return menuBar;
+    }
+
     /** Create a control panel consisting of new and number buttons. */
     private JPanel makeControlPanel() {
 //        System.out.println("makeControlPanel");
     	JPanel newButtons = new JPanel(new FlowLayout());
-        JButton new4Button = new JButton("New (4x4)");
-        for (JButton button: new JButton[] { new4Button, new JButton("New (9x9)") }) {
-        	button.setFocusPainted(false);
-            button.addActionListener(e ->
-                    newClicked(e.getSource() == new4Button ? 4 : 9));
-            newButtons.add(button);
-    	}
+        String[] sizeNames = new String[SIZES.length];
+        for (int i = 0; i < SIZES.length; i++) {
+            sizeNames[i] = SIZES[i] + "x" + SIZES[i];
+        }
+        JComboBox<String> sizeChoice = new JComboBox<>(sizeNames);
+        sizeChoice.setSelectedItem("9x9");
+        sizeChoice.setFocusable(false);
+        newButtons.add(sizeChoice);
+        JButton newButton = new JButton("New");
+        newButton.setFocusPainted(false);
+        newButton.addActionListener(e -> newClicked(SIZES[sizeChoice.getSelectedIndex()]));
+        newButtons.add(newButton);
+        JButton hintButton = new JButton("Hint");
+        hintButton.setFocusPainted(false);
+        hintButton.addActionListener(e -> hintClicked());
+        newButtons.add(hintButton);
     	newButtons.setAlignmentX(LEFT_ALIGNMENT);
-    	// buttons labeled 1, 2, ..., 9, and X.
-    	JPanel numberButtons = new JPanel(new FlowLayout());
+        makeNumberButtons();
+    	numberButtons.setAlignmentX(LEFT_ALIGNMENT);
+    	JPanel content = new JPanel();
+    	content.setLayout(new BoxLayout(content, BoxLayout.PAGE_AXIS));
+        content.add(newButtons);
+        content.add(numberButtons);
+        return content;
+    }
+
+    /** Fill the number panel with buttons labeled 1, 2, ..., size, and X,
+     * in one row up to 9x9 and in rows of ten beyond. */
+    private void makeNumberButtons() {
+        numberButtons.removeAll();
+        numberButtons.setLayout(board.size() <= 9 ? new FlowLayout() : new GridLayout(0, 10, 2, 2));
     	int maxNumber = board.size() + 1;
     	for (int i = 1; i <= maxNumber; i++) {
             int number = i % maxNumber;
@@ -161,12 +563,8 @@ public class SudokuDialog extends JFrame {
             button.addActionListener(e -> numberClicked(number));
     		numberButtons.add(button);
     	}
-    	numberButtons.setAlignmentX(LEFT_ALIGNMENT);
-    	JPanel content = new JPanel();
-    	content.setLayout(new BoxLayout(content, BoxLayout.PAGE_AXIS));
-        content.add(newButtons);
-        content.add(numberButtons);
-        return content;
+        numberButtons.revalidate();
+        numberButtons.repaint();
     }
 
     /** Create an image icon from the given image file. */
@@ -179,7 +577,15 @@ public class SudokuDialog extends JFrame {
         return null;
     }
 
-    public static void main(String[] args) {
-        new SudokuDialog();
+    /** Open the game window, or process puzzle files without a window if
+     * arguments are given (see {@link sudoku.io.Headless}). */
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0) {
+            sudoku.io.Headless.main(args);
+            return;
+        }
+        StartupReport.milestone("main");
+        EventQueueMonitor.install();
+        SwingUtilities.invokeLater(SudokuDialog::new);
     }
 }
@@ -0,0 +1,90 @@
+package sudoku.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes encoded games to a file on a background thread. Only the latest
+ * game handed over is kept, so games saved faster than the disk can take
+ * them are batched into one write, and the caller never waits for I/O.
+ *
+ * @see GameStore
+ */
+public class AutoSaver implements Closeable {
+
+    private final Path path;
+
+    /** Game waiting to be written, or null. */
+    private final AtomicReference<ByteBuffer> pending = new AtomicReference<>();
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "autosave");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Create a saver writing to the given file.
+     * @param path This is the file holding the saved game.
+     */
+    public AutoSaver(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * This method schedules a game to be written, replacing any game still
+     * waiting.
+     * @param game This is a buffer returned by {@link GameStore#encode}.
+     * */
+    public void save(ByteBuffer game) {
+        if (pending.getAndSet(game) == null) {
+            writer.execute(this::drain);
+        }
+    }
+
+    /** Write the waiting game, if any, on the calling thread. */
+    public void flush() {
+        drain();
+    }
+
+    /** Delete the saved game, for instance once it is solved. */
+    public synchronized void delete() {
+        pending.set(null);
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Cannot delete saved game: " + e.getMessage());
+        }
+    }
+
+    /** Write the waiting game and stop the background thread. */
+    @Override
+    public void close() {
+        flush();
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Write the waiting game; one write at a time. */
+    private synchronized void drain() {
+        ByteBuffer game = pending.getAndSet(null);
+        if (game != null) {
+            try {
+                GameStore.write(path, game);
+            } catch (IOException e) {
+                System.err.println("Cannot save game: " + e.getMessage());
+            }
+        }
+    }
+}
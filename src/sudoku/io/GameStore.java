@@ -0,0 +1,186 @@
+package sudoku.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import sudoku.model.Board;
+import sudoku.model.MoveJournal;
+
+/**
+ * Saves and restores a game in a compact binary file:
+ * <pre>
+ *   int    magic "SDKG"
+ *   short  format version
+ *   byte   size, sub-grid rows, sub-grid columns
+ *   long   elapsed playing time in milliseconds
+ *   byte   per cell: the number, plus 0x80 for a given
+ *   int    number of journal moves, int position in the journal
+ *   long   per journal move, oldest first
+ * </pre>
+ * Validity is not stored: it follows from the cells and is rebuilt when
+ * the board is filled. A 9x9 game without moves takes 106 bytes.
+ * <p>
+ * Files are written to a temporary file next to the target, forced to
+ * disk and renamed over the target, so a crash leaves either the old or
+ * the new game, never a torn file. Reading is a single bulk read.
+ *
+ * @see AutoSaver
+ */
+public class GameStore {
+
+    private static final int MAGIC = 0x53444B47;
+    private static final short VERSION = 1;
+    private static final int HEADER = 4 + 2 + 3 + 8;
+
+    /** A game read back from a file. */
+    public static class SavedGame {
+        private final Board board;
+        private final long[] moves;
+        private final int position;
+        private final long elapsed;
+
+        SavedGame(Board board, long[] moves, int position, long elapsed) {
+            this.board = board;
+            this.moves = moves;
+            this.position = position;
+            this.elapsed = elapsed;
+        }
+
+        /** Return the restored board.
+         * @return Returns the board with its givens and entries. */
+        public Board board() {
+            return board;
+        }
+
+        /** Return the playing time before the game was saved.
+         * @return Returns the time in milliseconds. */
+        public long elapsedMillis() {
+            return elapsed;
+        }
+
+        /**
+         * This method loads the saved moves into a journal of the restored
+         * board, so they can be undone and redone.
+         * @param journal This is a journal attached to {@link #board()}.
+         * */
+        public void restoreJournal(MoveJournal journal) {
+            journal.restore(moves, moves.length, position);
+        }
+    }
+
+    private GameStore() {
+    }
+
+    /**
+     * This method encodes a game into a buffer ready to be written.
+     * @param board This is the board of the game.
+     * @param journal This is the journal of the board, or null.
+     * @param elapsedMillis This is the playing time so far.
+     * @return Returns the encoded game, flipped for reading.
+     * */
+    public static ByteBuffer encode(Board board, MoveJournal journal, long elapsedMillis) {
+        int size = board.size();
+        int moves = journal == null ? 0 : (int) (journal.end() - journal.first());
+        ByteBuffer out = ByteBuffer.allocate(HEADER + size * size + 8 + moves * 8);
+        out.putInt(MAGIC).putShort(VERSION);
+        out.put((byte) size).put((byte) board.boxRows()).put((byte) board.boxCols());
+        out.putLong(elapsedMillis);
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                out.put((byte) (board.getElement(row, col) | (board.isGiven(row, col) ? 0x80 : 0)));
+            }
+        }
+        out.putInt(moves).putInt(journal == null ? 0 : (int) (journal.position() - journal.first()));
+        for (int i = 0; i < moves; i++) {
+            out.putLong(journal.move(journal.first() + i));
+        }
+        out.flip();
+        return out;
+    }
+
+    /**
+     * This method writes an encoded game to a file atomically.
+     * @param path This is the file to be replaced.
+     * @param game This is a buffer returned by {@link #encode}; it is consumed.
+     * @throws IOException If the file cannot be written.
+     * */
+    public static void write(Path path, ByteBuffer game) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = parent.resolve(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (game.hasRemaining()) {
+                channel.write(game);
+            }
+            channel.force(false);
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * This method reads a game from a file.
+     * @param path This is the file to be read.
+     * @return Returns the game.
+     * @throws IOException If the file cannot be read, is not a saved game,
+     * or holds a board or moves out of range.
+     * */
+    public static SavedGame read(Path path) throws IOException {
+        ByteBuffer in;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            in = ByteBuffer.allocate((int) channel.size());
+            while (in.hasRemaining() && channel.read(in) >= 0) {
+                // a single read for any file the local file system holds
+            }
+        }
+        in.flip();
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a saved game: " + path);
+            }
+            short version = in.getShort();
+            if (version > VERSION) {
+                throw new IOException("Saved game version " + version + " is newer than " + VERSION);
+            }
+            int size = in.get(), boxRows = in.get(), boxCols = in.get();
+            long elapsed = in.getLong();
+            Board board = new Board(size, boxRows, boxCols);
+            byte[] cells = new byte[size * size];
+            in.get(cells);
+            for (int pass = 0; pass < 2; pass++) {
+                // givens first, so that fixGivens marks only them
+                for (int i = 0; i < cells.length; i++) {
+                    boolean given = (cells[i] & 0x80) != 0;
+                    if (given == (pass == 0) && (cells[i] & 0x7F) != 0) {
+                        board.setElement(i / size, i % size, cells[i] & 0x7F);
+                    }
+                }
+                if (pass == 0) {
+                    board.fixGivens();
+                }
+            }
+            int count = in.getInt(), position = in.getInt();
+            if (count < 0 || count > in.remaining() / 8) {
+                throw new IOException("Truncated saved game: " + path);
+            }
+            if (count > MoveJournal.DEFAULT_MAX_MOVES || position < 0 || position > count) {
+                throw new IOException("Invalid journal in saved game: " + position + " of " + count);
+            }
+            long[] moves = new long[count];
+            in.asLongBuffer().get(moves);
+            for (long move : moves) {
+                int oldNum = (int) (move >>> 8) & 0xFF, num = (int) move & 0xFF;
+                if (move >>> 16 >= size * size || oldNum > size || num > size) {
+                    throw new IOException("Invalid move in saved game: " + Long.toHexString(move));
+                }
+            }
+            return new SavedGame(board, moves, position, elapsed);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt saved game: " + path, e);
+        }
+    }
+}
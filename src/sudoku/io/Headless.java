@@ -0,0 +1,137 @@
+package sudoku.io;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import sudoku.model.Board;
+import sudoku.model.GridValidator;
+import sudoku.solver.BatchSolver;
+import sudoku.solver.Rater;
+
+/**
+ * Command-line mode for processing puzzle files without opening a window.
+ * <pre>
+ *   solve    in out   write the solution of each puzzle, or the puzzle
+ *                     followed by " unsolvable"
+ *   validate in out   write "solved", "valid" (no conflicts yet) or
+ *                     "invalid" for each grid
+ *   rate     in out   write each puzzle followed by its difficulty rating,
+ *                     or "unrated" if human techniques cannot solve it
+ *   verify   in out   write the number, from 1, of each grid that is not a
+ *                     complete solution
+ * </pre>
+ * Puzzles are read in batches into a fixed set of boards that are reused
+ * for the whole file, and solved or rated in parallel by a
+ * {@link BatchSolver}. Grids to verify are read into a flat byte array
+ * instead, and checked on all cores by a {@link GridValidator}.
+ *
+ * @see PuzzleReader
+ * @see PuzzleWriter
+ */
+public class Headless {
+
+    /** Number of puzzles read, solved and written together. */
+    private static final int BATCH = 4096;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3 || !(args[0].equals("solve") || args[0].equals("validate")
+                || args[0].equals("rate") || args[0].equals("verify"))) {
+            System.err.println("Usage: Headless solve|validate|rate|verify <in> <out>");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        long count = run(args[0], Paths.get(args[1]), Paths.get(args[2]));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("%d puzzles in %.3f s (%.0f puzzles/s)%n", count, seconds, count / seconds);
+    }
+
+    /**
+     * This method processes every puzzle of a file.
+     * @param mode This is "solve", "validate", "rate" or "verify".
+     * @param in This is the puzzle file.
+     * @param out This is the result file.
+     * @return Returns the number of puzzles processed.
+     * @throws IOException If a file cannot be read or written.
+     */
+    public static long run(String mode, Path in, Path out) throws IOException {
+        if (mode.equals("verify")) {
+            return verify(in, out);
+        }
+        boolean solve = mode.equals("solve"), rate = mode.equals("rate");
+        BatchSolver solver = solve || rate ? new BatchSolver() : null;
+        long count = 0;
+        try (PuzzleReader reader = new PuzzleReader(in); PuzzleWriter writer = new PuzzleWriter(out)) {
+            List<Board> boards = new ArrayList<>(BATCH);
+            for (int i = 0; i < BATCH; i++) {
+                boards.add(new Board(reader.size()));
+            }
+            List<Board> batch = new ArrayList<>(BATCH);
+            while (true) {
+                batch.clear();
+                while (batch.size() < BATCH && reader.next(boards.get(batch.size()))) {
+                    batch.add(boards.get(batch.size()));
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                Rater.Rating[] ratings = null;
+                if (solve) {
+                    solver.solveAll(batch);
+                } else if (rate) {
+                    ratings = solver.rateAll(batch);
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    Board board = batch.get(i);
+                    if (rate) {
+                        writer.write(board, " " + ratings[i]);
+                    } else if (!solve) {
+                        writer.writeLine(board.isSolved() ? "solved"
+                                : board.hasConflicts() ? "invalid" : "valid");
+                    } else {
+                        writer.write(board, board.isSolved() ? "" : " unsolvable");
+                    }
+                }
+                count += batch.size();
+            }
+        } finally {
+            if (solver != null) {
+                solver.shutdown();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * This method checks every grid of a file for being a solution.
+     * @param in This is the grid file.
+     * @param out This is the file listing the grids that fail.
+     * @return Returns the number of grids checked.
+     * @throws IOException If a file cannot be read or written.
+     */
+    private static long verify(Path in, Path out) throws IOException {
+        long count = 0;
+        try (PuzzleReader reader = new PuzzleReader(in); PuzzleWriter writer = new PuzzleWriter(out)) {
+            GridValidator validator = GridValidator.create(reader.size());
+            int cells = reader.size() * reader.size();
+            byte[] grids = new byte[BATCH * cells];
+            while (true) {
+                int n = 0;
+                while (n < BATCH && reader.next(grids, n * cells)) {
+                    n++;
+                }
+                if (n == 0) {
+                    break;
+                }
+                BitSet failures = validator.validateParallel(grids, 0, n);
+                for (int i = failures.nextSetBit(0); i >= 0; i = failures.nextSetBit(i + 1)) {
+                    writer.writeLine(Long.toString(count + i + 1));
+                }
+                count += n;
+            }
+        }
+        return count;
+    }
+}
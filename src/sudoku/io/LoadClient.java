@@ -0,0 +1,212 @@
+package sudoku.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import sudoku.model.Board;
+import sudoku.solver.DlxSolver;
+import sudoku.solver.Generator;
+
+/**
+ * Load generator for {@link SudokuServer}. Each client thread plays its own
+ * sessions: mostly moves, three in four of them correct, with hints, grid
+ * validations and solves mixed in, starting a new session whenever a board
+ * is solved. At the end the throughput and the latency percentiles of all
+ * requests are printed.
+ * <pre>
+ *   LoadClient [url] [clients] [seconds]
+ * </pre>
+ * With no url, or an empty one, a server is started in this process on a free port.
+ *
+ * @see SudokuServer
+ */
+public class LoadClient {
+
+    /** Number of distinct puzzles the clients cycle through. */
+    private static final int PUZZLES = 32;
+
+    private final String base;
+    private final Board[] puzzles = new Board[PUZZLES];
+    private final Board[] solutions = new Board[PUZZLES];
+    private final AtomicLong errors = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 && !args[0].isEmpty() ? args[0] : null;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 4 * Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        SudokuServer server = null;
+        if (url == null) {
+            SudokuServer.enableNoDelay();
+            server = new SudokuServer(new InetSocketAddress("127.0.0.1", 0), 60_000);
+            server.start();
+            url = "http://127.0.0.1:" + server.port();
+        }
+        System.setProperty("http.maxConnections", String.valueOf(clients));
+        new LoadClient(url).run(clients, seconds);
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Create a load generator for the server at the given url, generating
+     * the puzzles to be played.
+     * @param url This is the base url of the server, without a trailing slash.
+     */
+    public LoadClient(String url) {
+        this.base = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        Generator generator = new Generator(new Random(42));
+        DlxSolver solver = new DlxSolver();
+        for (int i = 0; i < PUZZLES; i++) {
+            puzzles[i] = generator.generate(9, Generator.Difficulty.MEDIUM);
+            solutions[i] = new Board(puzzles[i]);
+            solver.solve(solutions[i]);
+        }
+    }
+
+    /**
+     * This method runs the clients for the given time and prints the results.
+     * @param clients This is the number of client threads.
+     * @param seconds This is the duration of the run, after a one second warm-up.
+     * */
+    public void run(int clients, int seconds) throws InterruptedException {
+        long warmup = System.nanoTime() + 1_000_000_000L;
+        long deadline = warmup + seconds * 1_000_000_000L;
+        long[][] latencies = new long[clients][];
+        Thread[] threads = new Thread[clients];
+        for (int i = 0; i < clients; i++) {
+            int client = i;
+            threads[i] = new Thread(() -> latencies[client] = play(client, warmup, deadline), "load-client-" + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        int total = 0;
+        for (long[] times : latencies) {
+            total += times.length;
+        }
+        long[] all = new long[total];
+        int at = 0;
+        for (long[] times : latencies) {
+            System.arraycopy(times, 0, all, at, times.length);
+            at += times.length;
+        }
+        Arrays.sort(all);
+        System.out.printf("%d clients, %d requests in %d s: %.0f requests/s, %d errors%n",
+                clients, total, seconds, total / (double) seconds, errors.get());
+        if (total > 0) {
+            System.out.printf("latency ms: p50 %.3f  p90 %.3f  p99 %.3f  p99.9 %.3f  max %.3f%n",
+                    percentile(all, 0.50), percentile(all, 0.90), percentile(all, 0.99),
+                    percentile(all, 0.999), all[total - 1] / 1e6);
+        }
+    }
+
+    /**
+     * This method plays sessions until the deadline.
+     * @param client This is the number of the client, for choosing puzzles.
+     * @param warmup This is the time before which latencies are not kept.
+     * @param deadline This is the time at which to stop.
+     * @return Returns the latency of each request after the warm-up, in nanoseconds.
+     * */
+    private long[] play(int client, long warmup, long deadline) {
+        Random random = new Random(client);
+        long[] times = new long[1024];
+        int count = 0;
+        int game = client;
+        String session = null;
+        Board board = null, solution = null;
+        for (long now = System.nanoTime(); now < deadline; ) {
+            try {
+                String answer;
+                if (session == null) {
+                    Board puzzle = puzzles[game % PUZZLES];
+                    solution = solutions[game++ % PUZZLES];
+                    board = new Board(puzzle);
+                    session = answer = request("POST", "/sessions", SudokuServer.format(puzzle));
+                } else {
+                    int op = random.nextInt(20);
+                    if (op == 0) {
+                        answer = request("GET", "/sessions/" + session + "/hint", null);
+                    } else if (op == 1) {
+                        answer = request("POST", "/validate", SudokuServer.format(board));
+                    } else if (op == 2) {
+                        answer = request("POST", "/solve", SudokuServer.format(puzzles[game % PUZZLES]));
+                    } else {
+                        int cell = random.nextInt(81), row = cell / 9, col = cell % 9;
+                        while (board.getElement(row, col) == solution.getElement(row, col)) {
+                            cell = (cell + 1) % 81;
+                            row = cell / 9;
+                            col = cell % 9;
+                        }
+                        int num = random.nextInt(4) == 0 ? random.nextInt(9) + 1 : solution.getElement(row, col);
+                        board.setElement(row, col, num);
+                        answer = request("POST", "/sessions/" + session + "/move?row=" + row
+                                + "&col=" + col + "&num=" + num, null);
+                        if (answer.equals("solved")) {
+                            request("DELETE", "/sessions/" + session, null);
+                            session = null;
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                errors.incrementAndGet();
+                session = null;
+            }
+            long end = System.nanoTime();
+            if (now >= warmup) {
+                if (count == times.length) {
+                    times = Arrays.copyOf(times, count * 2);
+                }
+                times[count++] = end - now;
+            }
+            now = end;
+        }
+        return Arrays.copyOf(times, count);
+    }
+
+    /**
+     * This method sends a request and reads the whole answer, so that the
+     * connection can be reused.
+     * @param method This is the HTTP method.
+     * @param path This is the path and query.
+     * @param body This is the request body, or null.
+     * @return Returns the answer without its line break.
+     * @throws IOException If the request fails or gets an error status.
+     */
+    private String request(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(base + path).openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+        int status = connection.getResponseCode();
+        ByteArrayOutputStream answer = new ByteArrayOutputStream();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            byte[] chunk = new byte[256];
+            for (int n; in != null && (n = in.read(chunk)) > 0; ) {
+                answer.write(chunk, 0, n);
+            }
+        }
+        String text = new String(answer.toByteArray(), StandardCharsets.US_ASCII).trim();
+        if (status >= 400) {
+            throw new IOException(status + " " + text);
+        }
+        return text;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))] / 1e6;
+    }
+}
@@ -0,0 +1,384 @@
+package sudoku.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import sudoku.model.Board;
+import sudoku.model.MoveJournal;
+
+/**
+ * Records what the player does in a game session to rotating log files,
+ * for analysis and for replaying bugs with {@link MoveReplayer}. Each
+ * record is a single long holding the time since the recorder was
+ * created, in microseconds, a {@link Kind} and up to three small numbers:
+ * <pre>
+ *   bits 63-24  microseconds   bits 23-20  kind
+ *   bits 17-12  row            bits 11-6   col     bits 5-0  num
+ * </pre>
+ * Records are put into a lock-free ring by a single thread, normally the
+ * event dispatch thread, at the cost of an array store and an ordered
+ * write; nothing on that thread ever blocks or does I/O. A background
+ * writer drains the ring into a direct buffer and writes it to the
+ * current log file whenever the buffer fills or the ring runs empty. If
+ * the ring is ever full, records are dropped rather than waited on.
+ * <p>
+ * Log files are named {@code moves-00000001.log} and so on; each starts
+ * with a header of its own, and a new one is started by every recorder and
+ * whenever the current one reaches its size limit. Only the most recent
+ * files are kept.
+ *
+ * @see MoveReplayer
+ */
+public class MoveRecorder implements Closeable {
+
+    /** Kinds of records, and what their numbers hold. */
+    public enum Kind {
+        /** A square was selected: row, col. */
+        SELECT,
+        /** A number button was clicked for the selected square: row, col, and num, 0 to delete. */
+        NUMBER,
+        /** A new game was asked for: row is the size. */
+        NEW,
+        /** A game started on a new board: row is the size, col the sub-grid height.
+         * GIVEN records, CELL records, and for a resumed game JOURNAL and
+         * UNDONE records follow. */
+        START,
+        /** A given of the board started: row, col, num. */
+        GIVEN,
+        /** A number entered before the game started, as in a resumed game: row, col, num. */
+        CELL,
+        /** Undo was chosen. */
+        UNDO,
+        /** Redo was chosen. */
+        REDO,
+        /** A move of a resumed game's journal that can be undone: row, col, num. */
+        JOURNAL,
+        /** A move of a resumed game's journal that was undone and can be redone:
+         * row, col, num. */
+        UNDONE
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+
+    /** "SMOV", the first int of every log file. */
+    static final int MAGIC = 0x534D4F56;
+    static final int VERSION = 1;
+
+    /** Magic, version, and the wall-clock time in milliseconds at which
+     * the recorder was created. */
+    static final int HEADER_BYTES = 16;
+
+    /** Default size limit and number of files kept. */
+    private static final long MAX_FILE_BYTES = 1 << 20;
+    private static final int KEEP_FILES = 16;
+
+    /** Records the ring holds, a power of two. */
+    private static final int CAPACITY = 1 << 16;
+
+    /** Size of the writer's buffer, and how long it sleeps when the ring is empty. */
+    private static final int BATCH_BYTES = 64 * 1024;
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final Path dir;
+    private final long maxFileBytes;
+    private final int keepFiles;
+
+    private final long[] ring = new long[CAPACITY];
+
+    /** Next record to be read, advanced by the writer, and next to be
+     * written, advanced by the producer. */
+    private final AtomicLong head = new AtomicLong(), tail = new AtomicLong();
+
+    /** The producer's last view of head, so that it reads it only when the ring seems full. */
+    private long knownHead;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final long startNanos = System.nanoTime();
+    private final long startMillis = System.currentTimeMillis();
+
+    private final Thread writer;
+    private volatile boolean closed;
+
+    /**
+     * Create a recorder writing to the given directory with the default
+     * file size limit and number of files.
+     * @param dir This is the directory of the log files, created if needed.
+     */
+    public MoveRecorder(Path dir) {
+        this(dir, MAX_FILE_BYTES, KEEP_FILES);
+    }
+
+    /**
+     * Create a recorder writing to the given directory.
+     * @param dir This is the directory of the log files, created if needed.
+     * @param maxFileBytes This is the size at which a new file is started.
+     * @param keepFiles This is the number of most recent files kept.
+     */
+    public MoveRecorder(Path dir, long maxFileBytes, int keepFiles) {
+        if (maxFileBytes <= HEADER_BYTES || keepFiles < 1) {
+            throw new IllegalArgumentException("Invalid log limits: " + maxFileBytes + " bytes, " + keepFiles + " files");
+        }
+        this.dir = dir;
+        this.maxFileBytes = maxFileBytes;
+        this.keepFiles = keepFiles;
+        writer = new Thread(this::drain, "move-recorder");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * This method records an action. It must always be called from the
+     * same thread.
+     * @param kind This is the kind of record.
+     * @param row This is the first number, from 0 to 63.
+     * @param col This is the second number, from 0 to 63.
+     * @param num This is the third number, from 0 to 63.
+     * */
+    public void record(Kind kind, int row, int col, int num) {
+        long t = tail.get();
+        if (t - knownHead == CAPACITY) {
+            knownHead = head.get();
+            if (t - knownHead == CAPACITY) {
+                dropped.incrementAndGet();
+                return;
+            }
+        }
+        long micros = (System.nanoTime() - startNanos) / 1000;
+        ring[(int) t & (CAPACITY - 1)] = encode(micros, kind, row, col, num);
+        tail.lazySet(t + 1);
+    }
+
+    /**
+     * This method records the start of a game: the board geometry, its
+     * givens, and the other numbers already on it.
+     * @param board This is the board of the new game.
+     * */
+    public void start(Board board) {
+        start(board, null);
+    }
+
+    /**
+     * This method records the start of a game with a history, as in a
+     * resumed game: the board geometry, its givens, the other numbers as
+     * they were before the oldest move of the journal, and then the moves
+     * of the journal, so that undo and redo can be played back.
+     * @param board This is the board of the game.
+     * @param journal This is the journal of the board, or null.
+     * */
+    public void start(Board board, MoveJournal journal) {
+        int size = board.size();
+        int[] cells = new int[size * size];
+        for (int cell = 0; cell < cells.length; cell++) {
+            cells[cell] = board.getElement(cell / size, cell % size);
+        }
+        if (journal != null) {
+            // take back the moves up to the position, newest first
+            for (long i = journal.position() - 1; i >= journal.first(); i--) {
+                long move = journal.move(i);
+                cells[(int) (move >>> 16)] = (int) (move >>> 8) & 0xFF;
+            }
+        }
+        record(Kind.START, size, board.boxRows(), 0);
+        for (int pass = 0; pass < 2; pass++) {
+            for (int cell = 0; cell < cells.length; cell++) {
+                int row = cell / size, col = cell % size;
+                if (cells[cell] != 0 && board.isGiven(row, col) == (pass == 0)) {
+                    record(pass == 0 ? Kind.GIVEN : Kind.CELL, row, col, cells[cell]);
+                }
+            }
+        }
+        if (journal != null) {
+            for (long i = journal.first(); i < journal.end(); i++) {
+                long move = journal.move(i);
+                int cell = (int) (move >>> 16);
+                record(i < journal.position() ? Kind.JOURNAL : Kind.UNDONE, cell / size, cell % size, (int) move & 0xFF);
+            }
+        }
+    }
+
+    /** Return the number of records dropped because the ring was full.
+     * @return Returns the count since the recorder was created. */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /** Write every record made so far and stop the background writer. */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (dropped.get() > 0) {
+            System.err.println("Move recorder dropped " + dropped.get() + " records");
+        }
+    }
+
+    /**
+     * This packs a record into a long.
+     * @param micros This is the time of the record.
+     * @param kind This is the kind of record.
+     * @param row This is the first number.
+     * @param col This is the second number.
+     * @param num This is the third number.
+     * @return Returns the record.
+     * */
+    static long encode(long micros, Kind kind, int row, int col, int num) {
+        return micros << 24 | (long) kind.ordinal() << 20 | (row & 63) << 12 | (col & 63) << 6 | (num & 63);
+    }
+
+    static long micros(long record) {
+        return record >>> 24;
+    }
+
+    /**
+     * This returns the kind of a record.
+     * @param record This is the record.
+     * @return Returns the kind, or null if the field holds no known kind.
+     * */
+    static Kind kind(long record) {
+        int kind = (int) (record >>> 20) & 15;
+        return kind < KINDS.length ? KINDS[kind] : null;
+    }
+
+    static int row(long record) {
+        return (int) (record >>> 12) & 63;
+    }
+
+    static int col(long record) {
+        return (int) (record >>> 6) & 63;
+    }
+
+    static int num(long record) {
+        return (int) record & 63;
+    }
+
+    /**
+     * This method lists the log files of a directory, oldest first.
+     * @param dir This is the directory of the log files.
+     * @return Returns the files, or an empty list if there is no directory.
+     * @throws IOException If the directory cannot be read.
+     * */
+    static List<Path> logs(Path dir) throws IOException {
+        List<Path> logs = new ArrayList<>();
+        if (Files.isDirectory(dir)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "moves-*.log")) {
+                for (Path file : files) {
+                    logs.add(file);
+                }
+            }
+        }
+        // the sequence numbers have a fixed width, so names sort in order
+        Collections.sort(logs);
+        return logs;
+    }
+
+    /** Move records from the ring to the log files until closed. */
+    private void drain() {
+        ByteBuffer batch = ByteBuffer.allocateDirect(BATCH_BYTES);
+        FileChannel out = null;
+        try {
+            while (true) {
+                // read before draining, so that records made before close are written
+                boolean last = closed;
+                long h = head.get(), t = tail.get();
+                for (; h < t; h++) {
+                    if (!batch.hasRemaining()) {
+                        out = write(out, batch);
+                    }
+                    batch.putLong(ring[(int) h & (CAPACITY - 1)]);
+                }
+                head.lazySet(h);
+                if (batch.position() > 0) {
+                    out = write(out, batch);
+                }
+                if (last) {
+                    break;
+                }
+                LockSupport.parkNanos(IDLE_NANOS);
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot record moves: " + e.getMessage());
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    System.err.println("Cannot close move log: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * This method writes the buffered records, starting a new file if there
+     * is none yet and whenever the current one reaches its limit.
+     * @param out This is the current file, or null.
+     * @param batch This is the buffer, in write mode; it is left empty.
+     * @return Returns the file last written to.
+     * @throws IOException If a file cannot be written.
+     * */
+    private FileChannel write(FileChannel out, ByteBuffer batch) throws IOException {
+        batch.flip();
+        while (batch.hasRemaining()) {
+            if (out == null || out.position() + Long.BYTES > maxFileBytes) {
+                if (out != null) {
+                    out.close();
+                }
+                out = rotate();
+            }
+            // whole records only, so that no record spans two files
+            long room = (maxFileBytes - out.position()) / Long.BYTES * Long.BYTES;
+            int end = batch.limit();
+            batch.limit((int) Math.min(end, batch.position() + room));
+            while (batch.hasRemaining()) {
+                out.write(batch);
+            }
+            batch.limit(end);
+        }
+        batch.clear();
+        return out;
+    }
+
+    /**
+     * This method starts the next log file and deletes the oldest ones
+     * beyond the number kept.
+     * @return Returns the new file, positioned after its header.
+     * @throws IOException If the file cannot be created.
+     * */
+    private FileChannel rotate() throws IOException {
+        Files.createDirectories(dir);
+        List<Path> logs = logs(dir);
+        int next = 1;
+        if (!logs.isEmpty()) {
+            String name = logs.get(logs.size() - 1).getFileName().toString();
+            next = Integer.parseInt(name.substring("moves-".length(), name.length() - ".log".length())) + 1;
+        }
+        for (int i = 0; i <= logs.size() - keepFiles; i++) {
+            Files.deleteIfExists(logs.get(i));
+        }
+        FileChannel out = FileChannel.open(dir.resolve(String.format("moves-%08d.log", next)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putLong(startMillis).flip();
+        while (header.hasRemaining()) {
+            out.write(header);
+        }
+        return out;
+    }
+}
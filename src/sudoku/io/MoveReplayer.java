@@ -0,0 +1,222 @@
+package sudoku.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import sudoku.model.Board;
+import sudoku.model.MoveJournal;
+
+/**
+ * Plays the logs of a {@link MoveRecorder} back through a {@link Board}
+ * at full speed, without opening a window. Each record does what the
+ * action it stands for did in the game: a START builds a new board from
+ * the GIVEN and CELL records after it, a NUMBER sets or deletes a number
+ * unless the square is a given, and UNDO and REDO go through a
+ * {@link MoveJournal}. Records before the first START, such as those of
+ * a game whose first file was rotated away, are skipped.
+ * <pre>
+ *   MoveReplayer &lt;log file or directory&gt;...
+ * </pre>
+ * The JOURNAL and UNDONE records of a resumed game are played into the
+ * journal before its first action, and the UNDONE ones then undone, so
+ * that undo and redo reach the moves made before it resumed, as in the
+ * game itself.
+ *
+ * @see MoveRecorder
+ */
+public class MoveReplayer {
+
+    /** Records read from a file at once. */
+    private static final int BATCH_RECORDS = 8192;
+
+    private Board board;
+    private MoveJournal journal;
+
+    /** Whether the givens of the current board are fixed yet. */
+    private boolean fixed;
+
+    /** Journal moves played back that the game had undone when it resumed. */
+    private int undone;
+
+    private long records, skipped, games, moves, lastMicros;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: MoveReplayer <log file or directory>...");
+            System.exit(2);
+        }
+        List<Path> files = new ArrayList<>();
+        for (String arg : args) {
+            Path path = Paths.get(arg);
+            files.addAll(Files.isDirectory(path) ? MoveRecorder.logs(path) : Collections.singletonList(path));
+        }
+        MoveReplayer replayer = new MoveReplayer();
+        long start = System.nanoTime();
+        for (Path file : files) {
+            replayer.replay(file);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("%d records (%d skipped), %d games, %d moves in %.3f s (%.0f records/s)%n",
+                replayer.records, replayer.skipped, replayer.games, replayer.moves, seconds, replayer.records / seconds);
+        Board board = replayer.board();
+        if (board != null) {
+            System.out.println(board.isSolved() ? "Last game solved"
+                    : board.hasConflicts() ? "Last game has conflicts" : "Last game in progress");
+        }
+    }
+
+    /**
+     * This method plays back every record of a log file.
+     * @param file This is a file written by a {@link MoveRecorder}.
+     * @throws IOException If the file cannot be read or is not a move log.
+     * */
+    public void replay(Path file) throws IOException {
+        try (FileChannel in = FileChannel.open(file)) {
+            ByteBuffer header = ByteBuffer.allocate(MoveRecorder.HEADER_BYTES);
+            int read = 0;
+            while (header.hasRemaining() && read >= 0) {
+                read = in.read(header);
+            }
+            header.flip();
+            if (header.remaining() < MoveRecorder.HEADER_BYTES || header.getInt() != MoveRecorder.MAGIC) {
+                throw new IOException("Not a move log: " + file);
+            }
+            if (header.getInt() != MoveRecorder.VERSION) {
+                throw new IOException("Unsupported move log version: " + file);
+            }
+            ByteBuffer batch = ByteBuffer.allocateDirect(BATCH_RECORDS * Long.BYTES);
+            while (in.read(batch) >= 0) {
+                batch.flip();
+                while (batch.remaining() >= Long.BYTES) {
+                    apply(batch.getLong());
+                }
+                // a record cut off by a crash is dropped at the end of the file
+                batch.compact();
+            }
+        }
+    }
+
+    /**
+     * This method plays back a single record.
+     * @param record This is a record as written by a {@link MoveRecorder}.
+     * @throws IOException If the record has an unknown kind, a board shape
+     * that does not exist, or a cell or number outside its board.
+     * */
+    public void apply(long record) throws IOException {
+        records++;
+        lastMicros = MoveRecorder.micros(record);
+        MoveRecorder.Kind kind = MoveRecorder.kind(record);
+        int row = MoveRecorder.row(record), col = MoveRecorder.col(record), num = MoveRecorder.num(record);
+        if (kind == null) {
+            throw new IOException("Unknown kind in move record " + records);
+        }
+        if (kind == MoveRecorder.Kind.START) {
+            // row is the size and col the sub-grid height, which must divide it
+            if (row < 1 || row > Board.MAX_SIZE || col < 1 || row % col != 0) {
+                throw new IOException("Invalid board " + row + " by " + col + " in move record " + records);
+            }
+            if (journal != null) {
+                journal.close();
+            }
+            board = new Board(row, col, row / col);
+            journal = null;
+            fixed = false;
+            undone = 0;
+            games++;
+            return;
+        }
+        if (board == null) {
+            skipped++;
+            return;
+        }
+        if (placesNumber(kind) && (row >= board.size() || col >= board.size() || num > board.size())) {
+            throw new IOException("Cell or number outside the board in move record " + records);
+        }
+        if (kind == MoveRecorder.Kind.GIVEN) {
+            board.setElement(row, col, num);
+            return;
+        }
+        if (!fixed) {
+            board.fixGivens();
+            fixed = true;
+        }
+        if (kind == MoveRecorder.Kind.CELL) {
+            board.setElement(row, col, num);
+            return;
+        }
+        if (journal == null) {
+            journal = new MoveJournal(board);
+        }
+        if (kind == MoveRecorder.Kind.JOURNAL || kind == MoveRecorder.Kind.UNDONE) {
+            board.setElement(row, col, num);
+            undone += kind == MoveRecorder.Kind.UNDONE ? 1 : 0;
+            return;
+        }
+        settle();
+        switch (kind) {
+            case NUMBER:
+                if (!board.isGiven(row, col)) {
+                    board.setElement(row, col, num);
+                    moves++;
+                }
+                break;
+            case UNDO:
+                journal.undo();
+                break;
+            case REDO:
+                journal.redo();
+                break;
+            default:
+                // selections and new game requests do not change the board
+                break;
+        }
+    }
+
+    /** Return if records of a kind store a number into a cell. */
+    private static boolean placesNumber(MoveRecorder.Kind kind) {
+        switch (kind) {
+            case GIVEN:
+            case CELL:
+            case NUMBER:
+            case JOURNAL:
+            case UNDONE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /** Undo the journal moves the game had undone when it resumed. */
+    private void settle() {
+        for (; undone > 0; undone--) {
+            journal.undo();
+        }
+    }
+
+    /** Return the board of the last game played back.
+     * @return Returns the board, or null if no game started. */
+    public Board board() {
+        if (undone > 0) {
+            settle();
+        }
+        return board;
+    }
+
+    /** Return the number of records played back, skipped ones included.
+     * @return Returns the count. */
+    public long records() {
+        return records;
+    }
+
+    /** Return the time of the last record played back.
+     * @return Returns microseconds since its recorder was created. */
+    public long lastMicros() {
+        return lastMicros;
+    }
+}
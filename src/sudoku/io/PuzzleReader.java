@@ -0,0 +1,217 @@
+package sudoku.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import sudoku.model.Board;
+
+/**
+ * Streams puzzles in the one-line-per-puzzle text format from a file.
+ * Each line holds the cells row by row, '.' or '0' for a blank, '1'-'9',
+ * 'A'-'Z' for 10 to 35, then 'a'-'z' for 36 to 61 and '@' for 62; on boards
+ * of size 35 or less, where no lowercase numbers exist, 'a'-'z' stand for
+ * 10 to 35 as well. Anything after the cells is ignored, as are empty lines
+ * and lines starting with '#'. The file is read through a sliding
+ * memory-mapped window and parsed straight into a {@link Board}, so neither
+ * the file nor its lines are ever copied onto the heap.
+ *
+ * @see PuzzleWriter
+ */
+public class PuzzleReader implements Closeable {
+
+    /** Size of the mapped window. */
+    private static final long WINDOW = 64L << 20;
+
+    /** Longest line that is guaranteed to fit in a window. */
+    private static final int MAX_LINE = 1 << 16;
+
+    private final FileChannel channel;
+    private final long length;
+
+    /** Mapped window and the file offset it starts at. */
+    private MappedByteBuffer buffer;
+    private long base;
+
+    /** File offset of the next byte to be read. */
+    private long position;
+
+    /** Number of the current line, for error messages. */
+    private long line = 1;
+
+    /** Size of the puzzles in the file. */
+    private final int size;
+
+    /**
+     * Open the given puzzle file and detect the puzzle size from its first line.
+     * @param path This is the file to be read.
+     * @throws IOException If the file cannot be read or its first line is not a square board.
+     */
+    public PuzzleReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        length = channel.size();
+        map(0);
+        int cells = 0;
+        if (skipToPuzzle()) {
+            while (position + cells < length && !isSpace(byteAt(position + cells))) {
+                cells++;
+            }
+        }
+        int n = (int) Math.round(Math.sqrt(cells));
+        if (cells == 0 || n * n != cells || n > Board.MAX_SIZE) {
+            channel.close();
+            throw new IOException("Not a puzzle file: " + path);
+        }
+        size = n;
+    }
+
+    /** Return the size of the puzzles in the file.
+     * @return Returns the number of rows of each puzzle. */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * This method parses the next puzzle of the file into the given board,
+     * replacing its contents.
+     * @param board This is a board of this file's size.
+     * @return Returns false if there are no more puzzles.
+     * @throws IOException If the line is shorter than a puzzle or has an unknown character.
+     */
+    public boolean next(Board board) throws IOException {
+        if (!skipToPuzzle()) {
+            return false;
+        }
+        board.reset();
+        int cells = size * size;
+        for (int i = 0; i < cells; i++) {
+            int c = position < length ? byteAt(position) : '\n';
+            int num = value(c, size);
+            if (num < 0 || num > size) {
+                throw new IOException("Malformed puzzle at line " + line);
+            }
+            if (num != 0) {
+                board.setElement(i / size, i % size, num);
+            }
+            position++;
+        }
+        while (position < length && byteAt(position) != '\n') {
+            position++; //ignore trailing fields
+        }
+        return true;
+    }
+
+    /**
+     * This method parses the next puzzle of the file into an array, one
+     * byte per cell, without building a board. Numbers larger than the
+     * size are stored as they are, for a validator to reject.
+     * @param cells This is the array to be filled.
+     * @param offset This is the index of the first cell of the puzzle.
+     * @return Returns false if there are no more puzzles.
+     * @throws IOException If the line is shorter than a puzzle or has an unknown character.
+     */
+    public boolean next(byte[] cells, int offset) throws IOException {
+        if (!skipToPuzzle()) {
+            return false;
+        }
+        int count = size * size;
+        for (int i = 0; i < count; i++) {
+            int num = value(position < length ? byteAt(position) : '\n', size);
+            if (num < 0) {
+                throw new IOException("Malformed puzzle at line " + line);
+            }
+            cells[offset + i] = (byte) num;
+            position++;
+        }
+        while (position < length && byteAt(position) != '\n') {
+            position++; //ignore trailing fields
+        }
+        return true;
+    }
+
+    /**
+     * This method moves past empty and comment lines and remaps the window
+     * if the next line may not fit in it.
+     * @return Returns false at the end of the file.
+     * */
+    private boolean skipToPuzzle() throws IOException {
+        while (position < length) {
+            int c = byteAt(position);
+            if (c == '#') {
+                while (position < length && byteAt(position) != '\n') {
+                    position++;
+                }
+            } else if (isSpace(c)) {
+                if (c == '\n') {
+                    line++;
+                }
+                position++;
+            } else {
+                if (position + MAX_LINE > base + buffer.limit() && base + buffer.limit() < length) {
+                    map(position);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * This method maps the window starting at the given offset.
+     * @param offset This is the file offset of the window.
+     * */
+    private void map(long offset) throws IOException {
+        base = offset;
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW, length - offset));
+    }
+
+    /**
+     * This method returns the byte at a file offset, remapping the window if
+     * the offset is past it.
+     * @param offset This is the file offset.
+     * @return Returns the byte as an unsigned value.
+     * */
+    private int byteAt(long offset) throws IOException {
+        if (offset >= base + buffer.limit()) {
+            map(offset);
+        }
+        return buffer.get((int) (offset - base)) & 0xFF;
+    }
+
+    /**
+     * This returns the number a character stands for.
+     * @param c This is the character.
+     * @param size This is the size of the board, which decides whether a
+     * lowercase letter is a number of its own or the same as the uppercase one.
+     * @return Returns the number, 0 for a blank or -1 for an unknown character.
+     * */
+    static int value(int c, int size) {
+        if (c == '.' || c == '0') {
+            return 0;
+        }
+        if (c >= '1' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 10;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + (size > 35 ? 36 : 10);
+        }
+        if (c == '@') {
+            return Board.MAX_SIZE;
+        }
+        return -1;
+    }
+
+    private static boolean isSpace(int c) {
+        return c == '\n' || c == '\r' || c == ' ' || c == '\t';
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,130 @@
+package sudoku.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import sudoku.model.Board;
+
+/**
+ * Writes boards and short result lines in the one-line-per-puzzle text
+ * format read by {@link PuzzleReader}. Output is collected in a direct
+ * buffer and handed to the file channel in large batches.
+ *
+ * @see PuzzleReader
+ */
+public class PuzzleWriter implements Closeable {
+
+    /** Size of the output batch. */
+    private static final int BATCH = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BATCH);
+
+    /**
+     * Create or truncate the given file for writing.
+     * @param path This is the file to be written.
+     * @throws IOException If the file cannot be opened.
+     */
+    public PuzzleWriter(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * This method writes the cells of a board as one line.
+     * @param board This is the board to be written.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Board board) throws IOException {
+        write(board, "");
+    }
+
+    /**
+     * This method writes the cells of a board followed by an ASCII text as one line.
+     * @param board This is the board to be written.
+     * @param suffix This is the text written after the cells.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Board board, String suffix) throws IOException {
+        int size = board.size();
+        ensure(size * size + suffix.length() + 1);
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                buffer.put((byte) symbol(board.getElement(row, col)));
+            }
+        }
+        for (int i = 0; i < suffix.length(); i++) {
+            buffer.put((byte) suffix.charAt(i));
+        }
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * This method writes an ASCII text as one line.
+     * @param text This is the text to be written.
+     * @throws IOException If the file cannot be written.
+     */
+    public void writeLine(String text) throws IOException {
+        ensure(text.length() + 1);
+        for (int i = 0; i < text.length(); i++) {
+            buffer.put((byte) text.charAt(i));
+        }
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * This returns the character written for a number.
+     * @param num This is a number of a board, or 0 for a blank.
+     * @return Returns '.', '1'-'9', 'A'-'Z' for 10 to 35, 'a'-'z' for 36 to
+     * 61 and '@' for 62.
+     * */
+    static char symbol(int num) {
+        if (num <= 0) {
+            return '.';
+        }
+        if (num <= 9) {
+            return (char) ('0' + num);
+        }
+        if (num <= 35) {
+            return (char) ('A' + num - 10);
+        }
+        if (num <= 61) {
+            return (char) ('a' + num - 36);
+        }
+        if (num == Board.MAX_SIZE) {
+            return '@';
+        }
+        throw new IllegalArgumentException("No symbol for " + num);
+    }
+
+    /**
+     * This method flushes the batch if it has no room for the given bytes.
+     * @param bytes This is the number of bytes about to be written.
+     * */
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    /**
+     * This method writes out the current batch.
+     * @throws IOException If the file cannot be written.
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+}
@@ -0,0 +1,395 @@
+package sudoku.io;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import sudoku.model.Board;
+import sudoku.solver.CandidateEngine;
+import sudoku.solver.DlxSolver;
+import sudoku.solver.Hint;
+
+/**
+ * Local HTTP service running the rules engine for many clients at once.
+ * Boards travel in the one-line text format of {@link PuzzleReader} and
+ * answers are short text lines:
+ * <pre>
+ *   POST   /validate                 grid in the body: "solved", "valid" or "invalid"
+ *   POST   /solve                    grid in the body: the solution or "unsolvable"
+ *   POST   /sessions                 puzzle in the body: the id of a new session
+ *   GET    /sessions/{id}            the current grid of the session
+ *   POST   /sessions/{id}/move?row=r&amp;col=c&amp;num=n
+ *                                    set (n = 0 clears) a cell: "solved", "valid" or "invalid"
+ *   GET    /sessions/{id}/hint       "row col number technique", or "none"
+ *   GET    /sessions/{id}/solve      the solution of the session's puzzle or "unsolvable"
+ *   DELETE /sessions/{id}            end the session
+ * </pre>
+ * Rows and columns are 0-based. Malformed requests get status 400 and
+ * unknown sessions 404, with the reason in the body.
+ * <p>
+ * Each request runs on its own virtual thread when the JDK has them, and
+ * on a cached thread pool otherwise. Sessions live in a concurrent map and
+ * each is locked on its own, so requests on different sessions never
+ * wait for each other; solvers are borrowed from a lock-free pool.
+ * Sessions idle for longer than the idle timeout are evicted.
+ * <p>
+ * The main methods turn on TCP_NODELAY for the JDK's HTTP server, which
+ * reads {@code sun.net.httpserver.nodelay} once for the whole JVM; a
+ * program embedding the server should run with
+ * {@code -Dsun.net.httpserver.nodelay=true}, or answers wait for delayed
+ * acknowledgements.
+ *
+ * @see LoadClient
+ */
+public class SudokuServer {
+
+    /** Default port and idle timeout. */
+    private static final int PORT = 8086;
+    private static final long IDLE_MILLIS = 10 * 60 * 1000;
+
+    /** Longest request body accepted, in bytes. */
+    private static final int MAX_BODY = 1 << 16;
+
+    /** A board played by one client, with pencil marks for hints. */
+    private static class Session {
+        final Board board;
+        final CandidateEngine candidates;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        Session(Board board) {
+            this.board = board;
+            this.candidates = new CandidateEngine(board);
+        }
+    }
+
+    /** Failure reported to the client with an HTTP status. */
+    @SuppressWarnings("serial")
+    private static class RequestException extends RuntimeException {
+        final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = newRequestExecutor();
+    private final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "session-evictor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final long idleMillis;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+
+    /** Solvers not in use; a request takes one or creates one. */
+    private final Queue<DlxSolver> solvers = new ConcurrentLinkedQueue<>();
+
+    /** Turn on TCP_NODELAY for the JDK's HTTP server unless the command line
+     * chose; it must be done before the first server is created. */
+    static void enableNoDelay() {
+        // answers are a single small write; without this they wait for delayed acks
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : PORT;
+        enableNoDelay();
+        SudokuServer server = new SudokuServer(new InetSocketAddress("127.0.0.1", port), IDLE_MILLIS);
+        server.start();
+        System.err.println("Sudoku server listening on http://127.0.0.1:" + server.port() + "/");
+    }
+
+    /**
+     * Create a server bound to the given address; it does not accept
+     * requests until started.
+     * @param address This is the address to listen on; port 0 picks a free port.
+     * @param idleMillis This is the time after which an unused session is evicted.
+     * @throws IOException If the address cannot be bound.
+     */
+    public SudokuServer(InetSocketAddress address, long idleMillis) throws IOException {
+        this.idleMillis = idleMillis;
+        server = HttpServer.create(address, 1024);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    /** Start accepting requests and evicting idle sessions. */
+    public void start() {
+        server.start();
+        long period = Math.max(1, idleMillis / 4);
+        evictor.scheduleAtFixedRate(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * This method stops the server, waiting up to the given time for
+     * requests in progress.
+     * @param seconds This is the time to wait, in seconds.
+     * */
+    public void stop(int seconds) {
+        server.stop(seconds);
+        evictor.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /** Return the port the server listens on.
+     * @return Returns the bound port. */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /** Return the number of live sessions.
+     * @return Returns the number of sessions not yet ended or evicted. */
+    public int sessionCount() {
+        return sessions.size();
+    }
+
+    /** Remove the sessions not used within the idle timeout. */
+    private void evictIdle() {
+        long oldest = System.currentTimeMillis() - idleMillis;
+        sessions.values().removeIf(session -> session.lastUsed < oldest);
+    }
+
+    /**
+     * This method answers one request, turning failures into error statuses.
+     * @param exchange This is the request and its response.
+     * */
+    private void handle(HttpExchange exchange) throws IOException {
+        int status = 200;
+        String answer;
+        try {
+            answer = route(exchange.getRequestMethod(), exchange.getRequestURI().getPath(),
+                    exchange.getRequestURI().getRawQuery(), exchange);
+        } catch (RequestException e) {
+            status = e.status;
+            answer = e.getMessage();
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            answer = e.getMessage();
+        } catch (RuntimeException e) {
+            status = 500;
+            answer = String.valueOf(e);
+        }
+        byte[] bytes = (answer + "\n").getBytes(StandardCharsets.US_ASCII);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * This method dispatches a request on its method and path.
+     * @param method This is the HTTP method.
+     * @param path This is the request path.
+     * @param query This is the raw query string, or null.
+     * @param exchange This is the request, for reading its body.
+     * @return Returns the text of the answer.
+     * */
+    private String route(String method, String path, String query, HttpExchange exchange) throws IOException {
+        String[] parts = path.split("/");
+        if (parts.length == 2 && method.equals("POST")) {
+            switch (parts[1]) {
+                case "validate":
+                    Board grid = parse(readBody(exchange));
+                    return grid.isSolved() ? "solved" : grid.hasConflicts() ? "invalid" : "valid";
+                case "solve":
+                    return solve(parse(readBody(exchange)));
+                case "sessions":
+                    Board puzzle = parse(readBody(exchange));
+                    puzzle.fixGivens();
+                    String id = Long.toString(nextId.incrementAndGet(), 36);
+                    sessions.put(id, new Session(puzzle));
+                    return id;
+                default:
+                    break;
+            }
+        }
+        if (parts.length < 3 || parts.length > 4 || !parts[1].equals("sessions")) {
+            throw new RequestException(404, "No such resource: " + path);
+        }
+        String id = parts[2];
+        String action = parts.length == 4 ? parts[3] : "";
+        if (method.equals("DELETE") && action.isEmpty()) {
+            return sessions.remove(id) != null ? "deleted" : "none";
+        }
+        Session session = sessions.get(id);
+        if (session == null) {
+            throw new RequestException(404, "No such session: " + id);
+        }
+        session.lastUsed = System.currentTimeMillis();
+        synchronized (session) {
+            if (method.equals("GET") && action.isEmpty()) {
+                return format(session.board);
+            }
+            if (method.equals("POST") && action.equals("move")) {
+                return move(session.board, query);
+            }
+            if (method.equals("GET") && action.equals("hint")) {
+                Hint hint = session.board.hasConflicts() ? null : session.candidates.findHint();
+                return hint == null ? "none"
+                        : hint.row() + " " + hint.col() + " " + hint.number() + " " + hint.technique();
+            }
+            if (method.equals("GET") && action.equals("solve")) {
+                Board puzzle = new Board(session.board.size(),
+                        session.board.boxRows(), session.board.boxCols());
+                for (int row = 0; row < puzzle.size(); row++) {
+                    for (int col = 0; col < puzzle.size(); col++) {
+                        if (session.board.isGiven(row, col)) {
+                            puzzle.setElement(row, col, session.board.getElement(row, col));
+                        }
+                    }
+                }
+                return solve(puzzle);
+            }
+        }
+        throw new RequestException(405, method + " not allowed on " + path);
+    }
+
+    /**
+     * This method makes a move on a session's board.
+     * @param board This is the board of the session.
+     * @param query This is the query holding row, col and num.
+     * @return Returns "solved", "valid" or "invalid" for the board after the move.
+     * */
+    private static String move(Board board, String query) {
+        int row = -1, col = -1, num = -1;
+        for (String pair : query == null ? new String[0] : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            int value = eq < 0 ? -1 : Integer.parseInt(pair.substring(eq + 1));
+            if (key.equals("row")) {
+                row = value;
+            } else if (key.equals("col")) {
+                col = value;
+            } else if (key.equals("num")) {
+                num = value;
+            }
+        }
+        int size = board.size();
+        if (row < 0 || row >= size || col < 0 || col >= size || num < 0 || num > size) {
+            throw new IllegalArgumentException("Expected row, col and num within the board: " + query);
+        }
+        if (board.isGiven(row, col)) {
+            throw new RequestException(409, "Given numbers cannot be changed");
+        }
+        if (num == 0) {
+            board.deleteElement(row, col);
+        } else {
+            board.setElement(row, col, num);
+        }
+        return board.isSolved() ? "solved" : board.isValid(row, col) ? "valid" : "invalid";
+    }
+
+    /**
+     * This method solves a board with a pooled solver.
+     * @param board This is the board to be solved in place.
+     * @return Returns the solution as a line, or "unsolvable".
+     * */
+    private String solve(Board board) {
+        DlxSolver solver = solvers.poll();
+        if (solver == null) {
+            solver = new DlxSolver();
+        }
+        try {
+            return solver.solve(board) ? format(board) : "unsolvable";
+        } finally {
+            solvers.offer(solver);
+        }
+    }
+
+    /**
+     * This method parses a board in the one-line text format.
+     * @param text This is the line; surrounding whitespace is ignored.
+     * @return Returns the board.
+     * */
+    static Board parse(String text) {
+        String cells = text.trim();
+        int size = (int) Math.round(Math.sqrt(cells.length()));
+        if (size < 1 || size * size != cells.length() || size > Board.MAX_SIZE) {
+            throw new IllegalArgumentException("Not a square board of " + cells.length() + " cells");
+        }
+        Board board = new Board(size);
+        for (int i = 0; i < cells.length(); i++) {
+            int num = PuzzleReader.value(cells.charAt(i), size);
+            if (num < 0 || num > size) {
+                throw new IllegalArgumentException("Bad cell '" + cells.charAt(i) + "' at " + i);
+            }
+            if (num != 0) {
+                board.setElement(i / size, i % size, num);
+            }
+        }
+        return board;
+    }
+
+    /**
+     * This method formats a board in the one-line text format.
+     * @param board This is the board.
+     * @return Returns the cells row by row.
+     * */
+    static String format(Board board) {
+        int size = board.size();
+        StringBuilder line = new StringBuilder(size * size);
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                line.append(PuzzleWriter.symbol(board.getElement(row, col)));
+            }
+        }
+        return line.toString();
+    }
+
+    /**
+     * This method reads a request body up to {@link #MAX_BODY} bytes.
+     * @param exchange This is the request.
+     * @return Returns the body as text.
+     * */
+    private static String readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] chunk = new byte[4096];
+        try (InputStream in = exchange.getRequestBody()) {
+            for (int n; (n = in.read(chunk)) > 0; ) {
+                body.write(chunk, 0, n);
+                if (body.size() > MAX_BODY) {
+                    throw new RequestException(413, "Body longer than " + MAX_BODY + " bytes");
+                }
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * This method creates the executor running the requests: one virtual
+     * thread per request on JDKs that have them, else a cached pool.
+     * @return Returns the executor.
+     * */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            // looked up reflectively, so that the game still builds for Java 8
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "sudoku-request");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package sudoku.metrics;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.Window;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the responsiveness of the Swing event dispatch thread: the time
+ * each event takes to dispatch, which includes every callback and paint,
+ * and the lag of a probe event posted at a fixed rate, which is how long
+ * input waits before the EDT gets to it.
+ */
+public class EventQueueMonitor extends EventQueue {
+
+    /** Time between two lag probes. */
+    private static final long PROBE_MILLIS = 50;
+
+    private static ScheduledExecutorService prober;
+
+    /**
+     * This method installs the monitor in the system event queue. It does
+     * nothing unless {@link Metrics#ENABLED} is set, or if already installed.
+     * */
+    public static synchronized void install() {
+        if (!Metrics.ENABLED || prober != null) {
+            return;
+        }
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(new EventQueueMonitor());
+        prober = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "edt-lag-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        prober.scheduleAtFixedRate(() -> {
+            // posting with no window open would keep AWT from shutting down
+            if (hasWindow()) {
+                long posted = System.nanoTime();
+                EventQueue.invokeLater(() -> Metrics.record(Probe.EDT_LAG, posted));
+            }
+        }, PROBE_MILLIS, PROBE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static boolean hasWindow() {
+        for (Window window : Window.getWindows()) {
+            if (window.isDisplayable()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void dispatchEvent(AWTEvent event) {
+        long start = System.nanoTime();
+        try {
+            super.dispatchEvent(event);
+        } finally {
+            Metrics.record(Probe.EDT_DISPATCH, start);
+        }
+    }
+}
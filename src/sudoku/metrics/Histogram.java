@@ -0,0 +1,123 @@
+package sudoku.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations in nanoseconds. Buckets are
+ * log-linear: every power of two is split into {@link #SUB_BUCKETS} equal
+ * parts, so any recorded value is known to within 1/8 of itself with 512
+ * buckets covering the whole range of a long. Recording is a few atomic
+ * increments and never allocates.
+ */
+public class Histogram {
+
+    /** Buckets per power of two, as a power of two. */
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * This method adds a duration to the histogram.
+     * @param nanos This is the duration; negative values count as 0.
+     * */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(bucket(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /** Count an event that has no duration. */
+    public void increment() {
+        count.increment();
+    }
+
+    /** Return the number of values recorded.
+     * @return Returns the count. */
+    public long count() {
+        return count.sum();
+    }
+
+    /** Return the mean of the values recorded.
+     * @return Returns the mean in nanoseconds, 0 if there are none. */
+    public double mean() {
+        long n = count();
+        return n == 0 ? 0 : sum.sum() / (double) n;
+    }
+
+    /** Return the largest value recorded.
+     * @return Returns the maximum in nanoseconds. */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * This returns an upper bound of the given quantile.
+     * @param quantile This is the quantile, between 0 and 1.
+     * @return Returns the upper end of the bucket holding the quantile, in
+     * nanoseconds, never more than the maximum.
+     * */
+    public long percentile(double quantile) {
+        long total = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            total += buckets.get(i);
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= rank && seen > 0) {
+                return Math.min(upperBound(i), max());
+            }
+        }
+        return 0;
+    }
+
+    /** Forget all values recorded. */
+    public void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * This returns the bucket of a value: values below {@link #SUB_BUCKETS}
+     * have a bucket each, and larger ones share it with the values that
+     * agree in their top {@code SUB_BITS + 1} bits.
+     * @param value This is a non-negative value.
+     * @return Returns the bucket index.
+     * */
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * This returns the largest value of a bucket.
+     * @param bucket This is the bucket index.
+     * @return Returns the upper end of the bucket.
+     * */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long low = (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+        return low + (1L << (exponent - SUB_BITS)) - 1;
+    }
+}
@@ -0,0 +1,163 @@
+package sudoku.metrics;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Low-overhead instrumentation of the game. Recording is switched on with
+ * the system property {@code sudoku.metrics=true}; when it is off,
+ * {@link #ENABLED} is a false constant and the JIT removes every probe.
+ * When it is on, each {@link Probe} keeps a {@link Histogram}, every
+ * recording is also a {@code sudoku.Probe} Flight Recorder event when the
+ * game is built with the {@code jfr} profile and runs on a JDK with JFR,
+ * and a summary is printed to standard error, or to the file named by
+ * {@code sudoku.metrics.file}, when the JVM exits. Flight Recorder events
+ * are emitted only while the property is on, so a recording started
+ * without it, as with {@code -XX:StartFlightRecording} alone, holds no
+ * {@code sudoku.Probe} events.
+ * <pre>
+ *   long start = Metrics.start();
+ *   ...
+ *   Metrics.record(Probe.SOLVE, start);
+ * </pre>
+ */
+public final class Metrics {
+
+    /** Whether probes record anything. */
+    public static final boolean ENABLED = Boolean.getBoolean("sudoku.metrics");
+
+    /** Flight Recorder events of recordings, or null without JFR. */
+    private static final ObjLongConsumer<Probe> JFR = ENABLED ? jfr() : null;
+
+    private static final Histogram[] HISTOGRAMS = new Histogram[Probe.values().length];
+
+    static {
+        for (int i = 0; i < HISTOGRAMS.length; i++) {
+            HISTOGRAMS[i] = new Histogram();
+        }
+        if (ENABLED) {
+            Runtime.getRuntime().addShutdownHook(new Thread(Metrics::dump, "metrics-dump"));
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * This method returns the start time of a timed operation.
+     * @return Returns the current time in nanoseconds, or 0 when disabled.
+     * */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * This method records the duration of an operation that began at the
+     * given time.
+     * @param probe This is the timed probe.
+     * @param start This is a time returned by {@link #start()}.
+     * */
+    public static void record(Probe probe, long start) {
+        if (ENABLED) {
+            recordNanos(probe, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * This method records a duration measured by the caller.
+     * @param probe This is the timed probe.
+     * @param nanos This is the duration in nanoseconds.
+     * */
+    public static void recordNanos(Probe probe, long nanos) {
+        if (ENABLED) {
+            HISTOGRAMS[probe.ordinal()].record(nanos);
+            if (JFR != null) {
+                JFR.accept(probe, nanos);
+            }
+        }
+    }
+
+    /**
+     * This method counts an event of a probe without a duration.
+     * @param probe This is the probe.
+     * */
+    public static void count(Probe probe) {
+        if (ENABLED) {
+            HISTOGRAMS[probe.ordinal()].increment();
+        }
+    }
+
+    /**
+     * This returns the histogram of a probe.
+     * @param probe This is the probe.
+     * @return Returns the histogram, empty when disabled.
+     * */
+    public static Histogram histogram(Probe probe) {
+        return HISTOGRAMS[probe.ordinal()];
+    }
+
+    /** Forget everything recorded so far. */
+    public static void reset() {
+        for (Histogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * This method formats a table of the probes that recorded anything:
+     * count and rate per second of uptime, then for timed probes the mean,
+     * median, 99th percentile and maximum in microseconds.
+     * @return Returns the summary, one line per probe.
+     * */
+    public static String summary() {
+        double uptime = Math.max(1, ManagementFactory.getRuntimeMXBean().getUptime()) / 1000.0;
+        StringBuilder text = new StringBuilder(String.format("%-18s %10s %9s %10s %10s %10s %10s%n",
+                "probe", "count", "per s", "mean us", "p50 us", "p99 us", "max us"));
+        for (Probe probe : Probe.values()) {
+            Histogram histogram = histogram(probe);
+            long count = histogram.count();
+            if (count == 0) {
+                continue;
+            }
+            text.append(String.format("%-18s %10d %9.1f", probe.label(), count, count / uptime));
+            if (probe.isTimed()) {
+                text.append(String.format(" %10.1f %10.1f %10.1f %10.1f", histogram.mean() / 1e3,
+                        histogram.percentile(0.5) / 1e3, histogram.percentile(0.99) / 1e3,
+                        histogram.max() / 1e3));
+            }
+            text.append(System.lineSeparator());
+        }
+        return text.toString();
+    }
+
+    /** Print the summary where {@code sudoku.metrics.file} says, or to standard error. */
+    public static void dump() {
+        String file = System.getProperty("sudoku.metrics.file");
+        if (file == null) {
+            System.err.print(summary());
+            return;
+        }
+        try (PrintStream out = new PrintStream(Files.newOutputStream(Paths.get(file)), true, "UTF-8")) {
+            out.print(summary());
+        } catch (IOException e) {
+            System.err.println("Cannot write metrics: " + e.getMessage());
+        }
+    }
+
+    /** Return the emitter of Flight Recorder events, or null if it is not
+     * built or the JFR API is not present. */
+    @SuppressWarnings("unchecked")
+    private static ObjLongConsumer<Probe> jfr() {
+        try {
+            return (ObjLongConsumer<Probe>) Class.forName("sudoku.metrics.ProbeEvent$Emitter")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // not built with the jfr profile, or a JDK without Flight Recorder
+            return null;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package sudoku.metrics;
+
+/**
+ * The places in the game whose timings or counts are recorded by
+ * {@link Metrics}.
+ */
+public enum Probe {
+    MOVE("Board move", true),
+    PAINT("Board paint", true),
+    REPAINT("Repaint request", false),
+    EDT_LAG("Event queue lag", true),
+    EDT_DISPATCH("Event dispatch", true),
+    AUDIO_START("Audio start", true),
+    SOLVE("Solve", true),
+    GENERATE("Generate", true),
+    RATE("Rate", true);
+
+    private final String label;
+    private final boolean timed;
+
+    Probe(String label, boolean timed) {
+        this.label = label;
+        this.timed = timed;
+    }
+
+    /** Return the name shown in summaries and recordings.
+     * @return Returns the label of this probe. */
+    public String label() {
+        return label;
+    }
+
+    /** Return if this probe records durations rather than only counts.
+     * @return Returns true for timed probes. */
+    public boolean isTimed() {
+        return timed;
+    }
+}
@@ -0,0 +1,148 @@
+package sudoku.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Timings of the phases of starting the game, from the start of the JVM
+ * to the first paint of the board and the end of the resources loaded in
+ * the background. Phases are few, so they are always recorded; the report
+ * is printed to standard error when the system property
+ * {@code sudoku.startup=true} is set, and whenever the first paint comes
+ * later than the budget in milliseconds given by
+ * {@code sudoku.startup.budget}, 1000 by default, or has not come by the
+ * time of the report.
+ * <pre>
+ *   long start = StartupReport.start();
+ *   ...
+ *   StartupReport.phase("icon", start);
+ * </pre>
+ */
+public final class StartupReport {
+
+    /** Whether the report is always printed. */
+    public static final boolean ENABLED = Boolean.getBoolean("sudoku.startup");
+
+    /** Longest time from JVM start to first paint before the report warns. */
+    public static final long BUDGET_MILLIS = Long.getLong("sudoku.startup.budget", 1000);
+
+    /** A phase of startup; a milestone has no duration. */
+    private static final class Phase {
+        final String name, thread;
+        final long start, end;
+
+        Phase(String name, long start, long end) {
+            this.name = name;
+            this.thread = Thread.currentThread().getName();
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private static final List<Phase> PHASES = new ArrayList<>();
+
+    private static final CompletableFuture<Void> PAINTED = new CompletableFuture<>();
+
+    /** Time of the first paint, in nanoseconds. */
+    private static volatile long paintedAt;
+
+    private StartupReport() {
+    }
+
+    /**
+     * This method returns the start time of a phase.
+     * @return Returns the current time in nanoseconds.
+     * */
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * This method records a phase that began at the given time and ends now.
+     * @param name This is the name of the phase.
+     * @param start This is a time returned by {@link #start()}.
+     * */
+    public static void phase(String name, long start) {
+        long end = System.nanoTime();
+        synchronized (PHASES) {
+            PHASES.add(new Phase(name, start, end));
+        }
+    }
+
+    /**
+     * This method records a point in time reached.
+     * @param name This is the name of the milestone.
+     * */
+    public static void milestone(String name) {
+        long now = System.nanoTime();
+        synchronized (PHASES) {
+            PHASES.add(new Phase(name, now, now));
+        }
+    }
+
+    /** Record the first paint of the board; later calls do nothing. It
+     * must always be called from the same thread. */
+    public static void painted() {
+        if (!PAINTED.isDone()) {
+            paintedAt = System.nanoTime();
+            milestone("first paint");
+            PAINTED.complete(null);
+        }
+    }
+
+    /** Return the first paint of the board as a future.
+     * @return Returns a future completed by the first {@link #painted()}. */
+    public static CompletableFuture<Void> firstPaint() {
+        return PAINTED;
+    }
+
+    /**
+     * This method formats a table of the phases recorded so far in the
+     * order they started, with start and end in milliseconds since the
+     * JVM started.
+     * @return Returns the report, one line per phase.
+     * */
+    public static String summary() {
+        List<Phase> phases;
+        synchronized (PHASES) {
+            phases = new ArrayList<>(PHASES);
+        }
+        phases.sort((a, b) -> Long.compare(a.start, b.start));
+        long jvmStart = jvmStart();
+        StringBuilder text = new StringBuilder(String.format("%-18s %10s %10s %10s  %s%n",
+                "phase", "start ms", "end ms", "took ms", "thread"));
+        for (Phase phase : phases) {
+            text.append(String.format("%-18s %10.1f %10.1f %10.1f  %s%n", phase.name,
+                    (phase.start - jvmStart) / 1e6, (phase.end - jvmStart) / 1e6,
+                    (phase.end - phase.start) / 1e6, phase.thread));
+        }
+        return text.toString();
+    }
+
+    /** Print the report if it is enabled or the first paint was over
+     * budget; a first paint that has not happened yet is over budget. */
+    public static void report() {
+        boolean painted = PAINTED.isDone();
+        long paint = painted ? (paintedAt - jvmStart()) / 1_000_000 : -1;
+        boolean over = !painted || paint > BUDGET_MILLIS;
+        if (ENABLED || over) {
+            System.err.print(summary());
+            if (painted) {
+                System.err.printf("First paint at %d ms, budget %d ms%s%n", paint, BUDGET_MILLIS,
+                        over ? " (over budget)" : "");
+            } else {
+                System.err.printf("No first paint yet, budget %d ms (over budget)%n", BUDGET_MILLIS);
+            }
+        }
+    }
+
+    /** Return the start of the JVM on the {@link System#nanoTime()} clock,
+     * to the millisecond; management classes are only loaded here. */
+    private static long jvmStart() {
+        // uptime first, so that loading the management classes is not counted
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        return System.nanoTime() - uptime * 1_000_000;
+    }
+}
@@ -0,0 +1,211 @@
+package sudoku.model;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A constraint that no number repeats within a set of cells, such as a
+ * diagonal of X-Sudoku or an extra region of Windoku. Like the units of a
+ * {@link Board}, it keeps a count, a sum of cell indexes and a bit per
+ * number, so that a move is checked in O(1).
+ * <p>
+ * Regions on the same board are merged into one constraint, which keeps
+ * these per region and lists the regions of each cell.
+ */
+public class AllDifferent implements Constraint {
+
+    /** Cells of each region. */
+    private final int[][] regions;
+
+    private int size;
+
+    /** The regions of cell i are regionOf[first[i]] up to first[i + 1]. */
+    private int[] first, regionOf;
+
+    /** Holders of each number in each region and the sum of their cell
+     * indexes, at region * (size + 1) + num, and the numbers held at least
+     * once in each region. */
+    private int[] count, sum;
+    private long[] mask;
+
+    private int maxRegions;
+
+    /**
+     * Create a constraint over the given cells.
+     * @param cells These are the cells, numbered row * size + col.
+     */
+    public AllDifferent(int... cells) {
+        this(new int[][] {cells.clone()});
+    }
+
+    private AllDifferent(int[][] regions) {
+        this.regions = regions;
+    }
+
+    /**
+     * This method creates the constraint for the diagonal from the top left
+     * to the bottom right corner.
+     * @param size This is the size of the board.
+     * @return Returns the constraint.
+     * */
+    public static AllDifferent mainDiagonal(int size) {
+        int[] cells = new int[size];
+        for (int i = 0; i < size; i++) {
+            cells[i] = i * size + i;
+        }
+        return new AllDifferent(cells);
+    }
+
+    /**
+     * This method creates the constraint for the diagonal from the top
+     * right to the bottom left corner.
+     * @param size This is the size of the board.
+     * @return Returns the constraint.
+     * */
+    public static AllDifferent antiDiagonal(int size) {
+        int[] cells = new int[size];
+        for (int i = 0; i < size; i++) {
+            cells[i] = i * size + size - 1 - i;
+        }
+        return new AllDifferent(cells);
+    }
+
+    @Override
+    public int[] bind(int size) {
+        int cellCount = size * size;
+        int[] perCell = new int[cellCount];
+        for (int[] region : regions) {
+            for (int cell : region) {
+                if (cell < 0 || cell >= cellCount) {
+                    throw new IllegalArgumentException("Cell " + cell + " is not on a board of size " + size);
+                }
+                perCell[cell]++;
+            }
+        }
+        this.size = size;
+        first = new int[cellCount + 1];
+        int covered = 0;
+        maxRegions = 0;
+        for (int cell = 0; cell < cellCount; cell++) {
+            first[cell + 1] = first[cell] + perCell[cell];
+            covered += perCell[cell] > 0 ? 1 : 0;
+            maxRegions = Math.max(maxRegions, perCell[cell]);
+        }
+        regionOf = new int[first[cellCount]];
+        int[] next = Arrays.copyOf(first, cellCount);
+        for (int r = 0; r < regions.length; r++) {
+            for (int cell : regions[r]) {
+                regionOf[next[cell]++] = r;
+            }
+        }
+        count = new int[regions.length * (size + 1)];
+        sum = new int[regions.length * (size + 1)];
+        mask = new long[regions.length];
+        int[] cells = new int[covered];
+        for (int cell = 0, n = 0; cell < cellCount; cell++) {
+            if (perCell[cell] > 0) {
+                cells[n++] = cell;
+            }
+        }
+        return cells;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(count, 0);
+        Arrays.fill(sum, 0);
+        Arrays.fill(mask, 0);
+    }
+
+    @Override
+    public void add(int cell, int num) {
+        for (int i = first[cell]; i < first[cell + 1]; i++) {
+            int r = regionOf[i];
+            count[r * (size + 1) + num]++;
+            sum[r * (size + 1) + num] += cell;
+            mask[r] |= 1L << num;
+        }
+    }
+
+    @Override
+    public void remove(int cell, int num) {
+        for (int i = first[cell]; i < first[cell + 1]; i++) {
+            int r = regionOf[i];
+            sum[r * (size + 1) + num] -= cell;
+            if (--count[r * (size + 1) + num] == 0) {
+                mask[r] &= ~(1L << num);
+            }
+        }
+    }
+
+    @Override
+    public boolean isValid(int cell, int num) {
+        for (int i = first[cell]; i < first[cell + 1]; i++) {
+            if (count[regionOf[i] * (size + 1) + num] != 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public long forbidden(int cell, int own) {
+        long taken = 0;
+        for (int i = first[cell]; i < first[cell + 1]; i++) {
+            int r = regionOf[i];
+            taken |= own != 0 && count[r * (size + 1) + own] == 1 ? mask[r] & ~(1L << own) : mask[r];
+        }
+        return taken;
+    }
+
+    @Override
+    public void peers(int cell, int oldNum, int num, IntConsumer affected) {
+        for (int i = first[cell]; i < first[cell + 1]; i++) {
+            int at = regionOf[i] * (size + 1);
+            if (oldNum != 0 && count[at + oldNum] == 2) {
+                affected.accept(sum[at + oldNum] - cell); // the other holder loses its conflict
+            }
+            if (num != 0 && count[at + num] == 1) {
+                affected.accept(sum[at + num]); // the lone holder gains one
+            }
+        }
+    }
+
+    @Override
+    public int maxPeers() {
+        return 2 * maxRegions;
+    }
+
+    @Override
+    public Constraint merge(Constraint other) {
+        if (!(other instanceof AllDifferent)) {
+            return null;
+        }
+        int[][] all = Arrays.copyOf(regions, regions.length + ((AllDifferent) other).regions.length);
+        System.arraycopy(((AllDifferent) other).regions, 0, all, regions.length, all.length - regions.length);
+        return new AllDifferent(all);
+    }
+
+    @Override
+    public Constraint copy() {
+        return new AllDifferent(regions);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof AllDifferent && Arrays.deepEquals(regions, ((AllDifferent) o).regions);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.deepHashCode(regions);
+    }
+
+    @Override
+    public void copyFrom(Constraint other) {
+        AllDifferent from = (AllDifferent) other;
+        System.arraycopy(from.count, 0, count, 0, count.length);
+        System.arraycopy(from.sum, 0, sum, 0, sum.length);
+        System.arraycopy(from.mask, 0, mask, 0, mask.length);
+    }
+}
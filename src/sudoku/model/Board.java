@@ -1,20 +1,235 @@
 package sudoku.model;
 
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import sudoku.metrics.Metrics;
+import sudoku.metrics.Probe;
+
 /** An abstraction of the Sudoku puzzle.
  * */
 public class Board {
 
     /** Size of this board (number of columns/rows). */
     private final int size;
-    private int[][] board;
-    private boolean[][] valid;
 
-    /** Create a new board of the given size.
+    /** Numbers of the cells row by row, indexed by row * size + col. */
+    private int[] cells;
+
+    /** Cells that are part of the puzzle rather than entered by the player. */
+    private boolean[] given;
+
+    /** Zobrist keys of this size and the hash of the current cells. */
+    private final long[] zobrist;
+    private long hash;
+
+    /** Largest supported size; numbers must fit in the bits of a long. */
+    public static final int MAX_SIZE = 62;
+
+    /** Height and width of a sub-grid. */
+    private final int boxRows, boxCols;
+
+    /** Sub-grid of each cell, indexed by row * size + col. The table never
+     * changes and is shared by copies of a board. */
+    private final int[] boxOf;
+
+    /** Occupancy counts of each number per row, column and sub-grid,
+     * indexed as [unit][num]. A count above one means a duplicate. */
+    private int[][] rowCount, colCount, boxCount;
+
+    /** Sum of the cell indexes (row * size + col) holding each number per unit.
+     * While a count is one, the sum is the index of the only cell holding it. */
+    private int[][] rowSum, colSum, boxSum;
+
+    /** Occupancy bitmasks of each unit; bit num is set while the count is non-zero. */
+    private long[] rowMask, colMask, boxMask;
+
+    /** Number of filled cells, and of filled cells that break no rule. */
+    private int filledCount, validCount;
+
+    /** Listeners notified of changes. */
+    private BoardListener[] listeners = new BoardListener[0];
+
+    /** Variant constraints checked on top of the unit rules. */
+    private Constraint[] constraints;
+
+    /** Constraints covering each cell, flattened: those of cell i are
+     * cellConstraints[constraintStart[i]] up to constraintStart[i + 1]. */
+    private int[] constraintStart;
+    private Constraint[] cellConstraints;
+
+    /** Scratch list of the cells whose validity a single move can change:
+     * the cell, up to two peers per unit, and the peers of its constraints. */
+    private int[] affected;
+    private boolean[] before;
+    private int affectedCount;
+
+    /** Move stamp of the last move that listed each cell as affected, so
+     * that a cell is listed once without searching the list. */
+    private int[] affectedStamp;
+    private int stamp;
+    private final IntConsumer affectedSink = this::addAffected;
+
+    /** Create a new board of the given size. The sub-grids are as close
+     * to square as the size allows, and wider than tall: 3x3 for 9, 2x3
+     * for 6, 3x4 for 12.
      * @param size This will be the size of the board. */
     public Board(int size) {
+        this(size, defaultBoxRows(size), size / defaultBoxRows(size));
+    }
+
+    /** Create a new board with sub-grids of the given shape and optional
+     * variant constraints, which become part of the validity of every cell
+     * they cover. Each constraint object belongs to this board from now on,
+     * and constraints of the same kind may be combined into one.
+     * @param size This will be the size of the board.
+     * @param boxRows This is the height of a sub-grid.
+     * @param boxCols This is the width of a sub-grid.
+     * @param constraints These are the variant constraints, if any. */
+    public Board(int size, int boxRows, int boxCols, Constraint... constraints) {
+        if (size < 1 || size > MAX_SIZE || boxRows < 1 || boxCols < 1 || boxRows * boxCols != size) {
+            throw new IllegalArgumentException(
+                    "Invalid board: " + size + " with " + boxRows + "x" + boxCols + " sub-grids");
+        }
         this.size = size;
-        this.board = new int[size][size];
-        this.valid = new boolean[size][size];
+        this.boxRows = boxRows;
+        this.boxCols = boxCols;
+        this.boxOf = new int[size * size];
+        int boxesPerBand = size / boxCols;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                boxOf[row * size + col] = (row / boxRows) * boxesPerBand + col / boxCols;
+            }
+        }
+        this.zobrist = Zobrist.keys(size);
+        compile(constraints.clone());
+        reset();
+    }
+
+    /** Create a copy of the given board, with the same sub-grid shape.
+     * @param other This is the board to be copied. */
+    public Board(Board other) {
+        this.size = other.size;
+        this.boxRows = other.boxRows;
+        this.boxCols = other.boxCols;
+        this.boxOf = other.boxOf;
+        this.zobrist = other.zobrist;
+        Constraint[] copies = new Constraint[other.constraints.length];
+        for (int i = 0; i < copies.length; i++) {
+            copies[i] = other.constraints[i].copy();
+        }
+        compile(copies);
+        reset();
+        copyFrom(other);
+    }
+
+    /**
+     * This binds the constraints to this board and lists the ones covering
+     * each cell, so that a move only visits the constraints of its cell.
+     * @param constraints These are the constraints of this board.
+     * */
+    private void compile(Constraint[] constraints) {
+        constraints = merge(constraints);
+        int cellCount = size * size;
+        int[][] covered = new int[constraints.length][];
+        int[] perCell = new int[cellCount];
+        int peers = 7;
+        for (int i = 0; i < constraints.length; i++) {
+            covered[i] = constraints[i].bind(size);
+            for (int cell : covered[i]) {
+                perCell[cell]++;
+            }
+            peers += constraints[i].maxPeers();
+        }
+        constraintStart = new int[cellCount + 1];
+        for (int cell = 0; cell < cellCount; cell++) {
+            constraintStart[cell + 1] = constraintStart[cell] + perCell[cell];
+        }
+        cellConstraints = new Constraint[constraintStart[cellCount]];
+        int[] next = Arrays.copyOf(constraintStart, cellCount);
+        for (int i = 0; i < constraints.length; i++) {
+            for (int cell : covered[i]) {
+                cellConstraints[next[cell]++] = constraints[i];
+            }
+        }
+        this.constraints = constraints;
+        affected = new int[peers];
+        before = new boolean[peers];
+        affectedStamp = new int[cellCount];
+    }
+
+    /**
+     * This combines the constraints of the same kind, so that a move visits
+     * one constraint object per kind rather than one per constraint.
+     * @param constraints These are the constraints given.
+     * @return Returns the combined constraints, in the order of their kinds.
+     * */
+    private static Constraint[] merge(Constraint[] constraints) {
+        Constraint[] merged = new Constraint[constraints.length];
+        int count = 0;
+        for (Constraint constraint : constraints) {
+            boolean combined = false;
+            for (int i = 0; i < count && !combined; i++) {
+                Constraint both = merged[i].merge(constraint);
+                if (both != null) {
+                    merged[i] = both;
+                    combined = true;
+                }
+            }
+            if (!combined) {
+                merged[count++] = constraint;
+            }
+        }
+        return Arrays.copyOf(merged, count);
+    }
+
+    /**
+     * This returns the default sub-grid height for a size: its largest
+     * divisor not above the square root.
+     * @param size This is the size of the board.
+     * @return Returns the number of rows in a sub-grid.
+     * */
+    private static int defaultBoxRows(int size) {
+        int rows = (int) Math.sqrt(size);
+        while (rows > 1 && size % rows != 0) {
+            rows--;
+        }
+        return Math.max(rows, 1);
+    }
+
+    /**
+     * This replaces the contents of this board with those of another board
+     * of the same size, sub-grid shape and constraints by copying the
+     * arrays, without replaying moves.
+     * Listeners are not notified.
+     * @param other This is the board to be copied.
+     * */
+    public void copyFrom(Board other) {
+        if (other.size != size || other.boxRows != boxRows) {
+            throw new IllegalArgumentException("Board shapes differ: " + other.size + " (" + other.boxRows
+                    + "x" + other.boxCols + ") and " + size + " (" + boxRows + "x" + boxCols + ")");
+        }
+        if (!Arrays.equals(other.constraints, constraints)) {
+            throw new IllegalArgumentException("Board constraints differ");
+        }
+        for (int i = 0; i < constraints.length; i++) {
+            constraints[i].copyFrom(other.constraints[i]);
+        }
+        System.arraycopy(other.cells, 0, cells, 0, cells.length);
+        System.arraycopy(other.given, 0, given, 0, given.length);
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(other.rowCount[i], 0, rowCount[i], 0, size + 1);
+            System.arraycopy(other.colCount[i], 0, colCount[i], 0, size + 1);
+            System.arraycopy(other.boxCount[i], 0, boxCount[i], 0, size + 1);
+            System.arraycopy(other.rowSum[i], 0, rowSum[i], 0, size + 1);
+            System.arraycopy(other.colSum[i], 0, colSum[i], 0, size + 1);
+            System.arraycopy(other.boxSum[i], 0, boxSum[i], 0, size + 1);
+        }
+        System.arraycopy(other.rowMask, 0, rowMask, 0, size);
+        System.arraycopy(other.colMask, 0, colMask, 0, size);
+        System.arraycopy(other.boxMask, 0, boxMask, 0, size);
+        filledCount = other.filledCount;
+        validCount = other.validCount;
+        hash = other.hash;
     }
 
     /** Return the size of this board.
@@ -23,18 +238,82 @@ public class Board {
     	return size;
     }
 
+    /** Return the number of rows in a sub-grid.
+     * @return Returns the height of a sub-grid. */
+    public int boxRows() {
+        return boxRows;
+    }
+
+    /** Return the number of columns in a sub-grid.
+     * @return Returns the width of a sub-grid. */
+    public int boxCols() {
+        return boxCols;
+    }
+
+    /**
+     * This returns the index of the sub-grid containing row col,
+     * counting sub-grids left to right and top to bottom.
+     * @param row This is the row in the matrix.
+     * @param col This is the column in the matrix.
+     * @return Returns the sub-grid index.
+     * */
+    public int boxIndex(int row, int col) {
+        return boxOf[row * size + col];
+    }
+
+    /**
+     * This returns whether another board has the size, sub-grid shape and
+     * constraints of this board, so that it can be copied into it.
+     * @param other This is the other board.
+     * @return Returns true if the boards play by the same rules.
+     * */
+    public boolean hasSameRules(Board other) {
+        return other.size == size && other.boxRows == boxRows && Arrays.equals(other.constraints, constraints);
+    }
+
     /**
-     * This method receives a coordinate in the matrix and checks if it is allowed.
-     * To check if the insertion is allowed, it relies on checkVertical, checkHorizontal,
-     * checkRange, and checkSubGrid.
+     * This returns whether this board has variant constraints.
+     * @return Returns true if constraints were given when it was created.
+     * */
+    public boolean hasConstraints() {
+        return constraints.length > 0;
+    }
+
+    /**
+     * This returns the numbers that can go into row col without repeating a
+     * number already in its row, column or sub-grid, or breaking a variant
+     * constraint. The cell's own number is not excluded.
+     * @param row This is the row in the matrix.
+     * @param col This is the column in the matrix.
+     * @return Returns a bitmask with bit num set for each allowed number.
+     * */
+    public long candidates(int row, int col) {
+        long taken = rowMask[row] | colMask[col] | boxMask[boxIndex(row, col)];
+        int own = cells[row * size + col];
+        if (checkRange(own) && rowCount[row][own] == 1 && colCount[col][own] == 1
+                && boxCount[boxIndex(row, col)][own] == 1) {
+            taken &= ~(1L << own);
+        }
+        int index = row * size + col;
+        for (int i = constraintStart[index]; i < constraintStart[index + 1]; i++) {
+            taken |= cellConstraints[i].forbidden(index, checkRange(own) ? own : 0);
+        }
+        return ~taken & (((1L << size) - 1) << 1);
+    }
+
+    /**
+     * This method receives a coordinate in the matrix and checks if its number
+     * follows the rules. It relies on checkVertical, checkHorizontal,
+     * checkRange, and checkSubGrid, which all read the unit counts, and
+     * checkConstraints.
      * @param row This is the row to be checked.
      * @param col This is the column to be checked.
-     * @param num This is the number to be compared against the matrix.
-     * @return Returns whether the insertion was allowed or not.
+     * @param num This is the number stored at the cell.
+     * @return Returns whether the number is allowed where it is.
      * */
     private boolean ruleChecker(int row, int col, int num) {
-        return (checkHorizontal(row, num) && checkVertical(col, num)
-                && checkSubGrid(row, col, num) && checkRange(num));
+        return (checkRange(num) && checkHorizontal(row, num) && checkVertical(col, num)
+                && checkSubGrid(row, col, num) && checkConstraints(row * size + col, num));
     }
 
     /**
@@ -43,8 +322,7 @@ public class Board {
      * @param col This is the column at which the number would be deleted.
      * */
     public void deleteElement(int row, int col) {
-        board[row][col] = 0;
-        valid[row][col] = false;
+        setElement(row, col, 0);
     }
 
     /**
@@ -54,18 +332,198 @@ public class Board {
      * @return Returns the element at the index.
      * */
     public int getElement(int row, int col) {
-        return board[row][col];
+        return cells[row * size + col];
     }
 
     /**
-     * This stores num into the position row col and determines if the insertion is valid.
+     * This stores num into the position row col and revalidates the cell and
+     * the peers whose conflicts it creates or resolves. Storing 0 clears the cell.
      * @param row This is the row at which the number is inserted.
      * @param col This is the column at which the number is inserted.
      * @param num This is the number inserted into the matrix.
      * */
     public void setElement(int row, int col, int num) {
-        valid[row][col] = ruleChecker(row, col, num);
-        board[row][col] = num;
+        int old = cells[row * size + col];
+        if (old == num) {
+            return;
+        }
+        long start = Metrics.start();
+        int box = boxIndex(row, col);
+        affectedCount = 0;
+        if (++stamp == 0) {
+            Arrays.fill(affectedStamp, 0);
+            stamp = 1;
+        }
+        addAffected(row * size + col);
+        if (checkRange(old)) {
+            // the last other holder of old in a unit loses its conflict
+            addPeer(rowCount[row], rowSum[row], old, 2, row * size + col);
+            addPeer(colCount[col], colSum[col], old, 2, row * size + col);
+            addPeer(boxCount[box], boxSum[box], old, 2, row * size + col);
+        }
+        if (checkRange(num)) {
+            // a lone holder of num in a unit gains a conflict
+            addPeer(rowCount[row], rowSum[row], num, 1, -1);
+            addPeer(colCount[col], colSum[col], num, 1, -1);
+            addPeer(boxCount[box], boxSum[box], num, 1, -1);
+        }
+        int index = row * size + col;
+        for (int i = constraintStart[index]; i < constraintStart[index + 1]; i++) {
+            cellConstraints[i].peers(index, checkRange(old) ? old : 0, checkRange(num) ? num : 0, affectedSink);
+        }
+        for (int i = 0; i < affectedCount; i++) {
+            before[i] = isValid(affected[i] / size, affected[i] % size);
+        }
+        boolean wasSolved = isSolved();
+        remove(row, col, box);
+        add(row, col, box, num);
+        filledCount += (num != 0 ? 1 : 0) - (old != 0 ? 1 : 0);
+        for (int i = 0; i < affectedCount; i++) {
+            boolean after = isValid(affected[i] / size, affected[i] % size);
+            if (after != before[i]) {
+                validCount += after ? 1 : -1;
+            }
+        }
+        if (listeners.length > 0) {
+            fireMove(row, col, old, num, wasSolved);
+        }
+        Metrics.record(Probe.MOVE, start);
+    }
+
+    /**
+     * This notifies the listeners of a move: the cell change, then the
+     * peers whose validity changed, then the solve if the move completed it.
+     * */
+    private void fireMove(int row, int col, int old, int num, boolean wasSolved) {
+        for (BoardListener listener : listeners) {
+            if (num == 0) {
+                listener.cellCleared(this, row, col, old);
+            } else {
+                listener.cellSet(this, row, col, old, num);
+            }
+        }
+        for (int i = 1; i < affectedCount; i++) {
+            boolean after = isValid(affected[i] / size, affected[i] % size);
+            if (after != before[i]) {
+                for (BoardListener listener : listeners) {
+                    listener.validityChanged(this, affected[i] / size, affected[i] % size, after);
+                }
+            }
+        }
+        if (!wasSolved && isSolved()) {
+            for (BoardListener listener : listeners) {
+                listener.solved(this);
+            }
+        }
+    }
+
+    /**
+     * This registers a listener to be notified of changes to this board.
+     * @param listener This is the listener to be added.
+     * */
+    public void addListener(BoardListener listener) {
+        BoardListener[] more = Arrays.copyOf(listeners, listeners.length + 1);
+        more[listeners.length] = listener;
+        listeners = more;
+    }
+
+    /**
+     * This unregisters a listener added by addListener.
+     * @param listener This is the listener to be removed.
+     * */
+    public void removeListener(BoardListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                BoardListener[] fewer = new BoardListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, fewer, 0, i);
+                System.arraycopy(listeners, i + 1, fewer, i, fewer.length - i);
+                listeners = fewer;
+                return;
+            }
+        }
+    }
+
+    /**
+     * This records the other cell holding num in a unit if the unit count is
+     * the given one, i.e., if the move is about to change that cell's validity.
+     * @param count These are the counts of the unit.
+     * @param sum These are the index sums of the unit.
+     * @param num This is the number moved in or out of the unit.
+     * @param trigger This is the count at which the peer is affected.
+     * @param self This is the index of the moving cell, or -1 if it does not hold num.
+     * */
+    private void addPeer(int[] count, int[] sum, int num, int trigger, int self) {
+        if (count[num] == trigger) {
+            addAffected(self < 0 ? sum[num] : sum[num] - self);
+        }
+    }
+
+    /**
+     * This adds a cell index to the affected list unless it is already there.
+     * @param index This is the index of the cell.
+     * */
+    private void addAffected(int index) {
+        if (affectedStamp[index] != stamp) {
+            affectedStamp[index] = stamp;
+            affected[affectedCount++] = index;
+        }
+    }
+
+    /**
+     * This clears the cell at row col and takes its number out of the unit indexes.
+     * @param row This is the row of the cell.
+     * @param col This is the column of the cell.
+     * @param box This is the sub-grid of the cell.
+     * */
+    private void remove(int row, int col, int box) {
+        int index = row * size + col;
+        int num = cells[index];
+        cells[index] = 0;
+        if (checkRange(num)) {
+            hash ^= zobrist[index * (size + 1) + num];
+            rowSum[row][num] -= index;
+            colSum[col][num] -= index;
+            boxSum[box][num] -= index;
+            if (--rowCount[row][num] == 0) {
+                rowMask[row] &= ~(1L << num);
+            }
+            if (--colCount[col][num] == 0) {
+                colMask[col] &= ~(1L << num);
+            }
+            if (--boxCount[box][num] == 0) {
+                boxMask[box] &= ~(1L << num);
+            }
+            for (int i = constraintStart[index]; i < constraintStart[index + 1]; i++) {
+                cellConstraints[i].remove(index, num);
+            }
+        }
+    }
+
+    /**
+     * This stores num into an empty cell and adds it to the unit indexes.
+     * @param row This is the row of the cell.
+     * @param col This is the column of the cell.
+     * @param box This is the sub-grid of the cell.
+     * @param num This is the number to be stored.
+     * */
+    private void add(int row, int col, int box, int num) {
+        int index = row * size + col;
+        cells[index] = num;
+        if (checkRange(num)) {
+            hash ^= zobrist[index * (size + 1) + num];
+            rowSum[row][num] += index;
+            colSum[col][num] += index;
+            boxSum[box][num] += index;
+            rowCount[row][num]++;
+            colCount[col][num]++;
+            boxCount[box][num]++;
+            rowMask[row] |= 1L << num;
+            colMask[col] |= 1L << num;
+            boxMask[box] |= 1L << num;
+            for (int i = constraintStart[index]; i < constraintStart[index + 1]; i++) {
+                cellConstraints[i].add(index, num);
+            }
+        }
     }
 
     /**
@@ -75,12 +533,7 @@ public class Board {
      * @return Returns if the number follows the rule.
      * */
     private boolean checkHorizontal(int row, int num) {
-        for (int i = 0; i < size; i++) {
-            if (board[row][i] == num) {
-                return false;
-            }
-        }
-        return true;
+        return rowCount[row][num] == 1;
     }
 
     /**
@@ -90,12 +543,7 @@ public class Board {
      * @return Returns if the number follows the rule.
      * */
     private boolean checkVertical(int col, int num) {
-        for (int i = 0; i < size; i++) {
-            if (board[i][col] == num) {
-                return false;
-            }
-        }
-        return true;
+        return colCount[col][num] == 1;
     }
 
     /**
@@ -106,17 +554,19 @@ public class Board {
      * @return Returns if the number follows the rule.
      * */
     private boolean checkSubGrid(int row, int col, int num) {
-        /*the starting position is determined by modding the
-         * row/col num by the sqrt of the size*/
-        int rowS = (int) Math.sqrt(size) * (int) Math.floor(Math.abs(row/Math.sqrt(size)));
-        int colS = (int) Math.sqrt(size) * (int) Math.floor(Math.abs(col/Math.sqrt(size)));
-        int rowE = (int) (rowS + (Math.sqrt(size)));
-        int colE = (int) (colS + (Math.sqrt(size)));
-        for (int i = rowS; i < rowE; i++) {
-            for (int j = colS; j < colE; j++) {
-                if (board[i][j] == num) {
-                    return false; //if a matching number is found
-                }
+        return boxCount[boxIndex(row, col)][num] == 1;
+    }
+
+    /**
+     * This performs the checks of the variant constraints covering a cell.
+     * @param index This is the index of the cell.
+     * @param num This is the number stored at the cell.
+     * @return Returns if the number follows every constraint.
+     * */
+    private boolean checkConstraints(int index, int num) {
+        for (int i = constraintStart[index]; i < constraintStart[index + 1]; i++) {
+            if (!cellConstraints[i].isValid(index, num)) {
+                return false;
             }
         }
         return true;
@@ -132,35 +582,114 @@ public class Board {
     }
 
     /**
-     * This returns whether the value was a valid insertion.
+     * This returns whether the number at row col breaks no rule. An empty
+     * cell is never valid.
      * @param row This is the row to be checked.
      * @param col This is the col to be checked.
-     * @return Returns the value stored at the index.
+     * @return Returns whether the cell holds a valid number.
      * */
     public boolean isValid(int row, int col) {
-        return valid[row][col];
+        return ruleChecker(row, col, cells[row * size + col]);
     }
 
     /**
-     * This checks if there are any 0's left in the matrix.
-     * @return Returns if there are no 0's left in the matrix.
+     * This checks if every cell is filled and breaks no rule.
+     * @return Returns if the puzzle is solved.
      * */
     public boolean isSolved() {
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                if (!valid[i][j]) {
-                    return false;
-                }
+        return validCount == size * size;
+    }
+
+    /**
+     * This marks every filled cell as a given of the puzzle.
+     * */
+    public void fixGivens() {
+        for (int i = 0; i < cells.length; i++) {
+            given[i] = cells[i] != 0;
+        }
+    }
+
+    /**
+     * This returns whether the cell at row col is a given of the puzzle.
+     * @param row This is the row to be checked.
+     * @param col This is the col to be checked.
+     * @return Returns if the number was given rather than entered.
+     * */
+    public boolean isGiven(int row, int col) {
+        return given[row * size + col];
+    }
+
+    /**
+     * This returns the Zobrist hash of the numbers on this board. It is
+     * updated with two XORs per move, and equal boards have equal hashes.
+     * @return Returns the 64-bit hash of the cells.
+     * */
+    public long hash() {
+        return hash;
+    }
+
+    /**
+     * This creates a compact snapshot of the numbers on this board.
+     * @return Returns the packed board.
+     * */
+    public PackedBoard pack() {
+        byte[] packed = new byte[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] < 0 || cells[i] > Byte.MAX_VALUE) {
+                throw new IllegalStateException("Number out of range: " + cells[i]);
             }
+            packed[i] = (byte) cells[i];
         }
-        return true;
+        return new PackedBoard(size, boxRows, boxCols, constraints, packed, hash);
+    }
+
+    /**
+     * This checks if any filled cell breaks a rule.
+     * @return Returns if the board has a conflicting or out-of-range number.
+     * */
+    public boolean hasConflicts() {
+        return filledCount != validCount;
     }
 
     /**
-     * This method rests the values in the matrix back to 0;
+     * This method rests the values in the matrix back to 0. The arrays are
+     * cleared in place so that a board can be reused without allocation.
      * */
     public void reset() {
-        board = new int[size][size];
-        valid = new boolean[size][size];
+        if (cells == null) {
+            cells = new int[size * size];
+            given = new boolean[size * size];
+            rowCount = new int[size][size + 1];
+            colCount = new int[size][size + 1];
+            boxCount = new int[size][size + 1];
+            rowSum = new int[size][size + 1];
+            colSum = new int[size][size + 1];
+            boxSum = new int[size][size + 1];
+            rowMask = new long[size];
+            colMask = new long[size];
+            boxMask = new long[size];
+        }
+        Arrays.fill(cells, 0);
+        Arrays.fill(given, false);
+        for (int i = 0; i < size; i++) {
+            Arrays.fill(rowCount[i], 0);
+            Arrays.fill(colCount[i], 0);
+            Arrays.fill(boxCount[i], 0);
+            Arrays.fill(rowSum[i], 0);
+            Arrays.fill(colSum[i], 0);
+            Arrays.fill(boxSum[i], 0);
+        }
+        Arrays.fill(rowMask, 0);
+        Arrays.fill(colMask, 0);
+        Arrays.fill(boxMask, 0);
+        for (Constraint constraint : constraints) {
+            constraint.clear();
+        }
+        filledCount = 0;
+        validCount = 0;
+        hash = 0;
+        for (BoardListener listener : listeners) {
+            listener.reset(this);
+        }
     }
 }
@@ -0,0 +1,152 @@
+package sudoku.model;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A fixed-capacity store of many boards of one size in a single off-heap
+ * buffer. Each record holds the board's Zobrist hash followed by one byte
+ * per cell, so a board costs size * size + 8 bytes and no Java object.
+ * Boards are addressed by the index returned when they are added.
+ * An arena is not thread-safe.
+ *
+ * @see PackedBoard
+ */
+public class BoardArena {
+
+    private final int size;
+    private final int recordSize;
+    private final int capacity;
+    private final ByteBuffer buffer;
+    private int count;
+
+    /**
+     * Create an arena for the given number of boards.
+     * @param size This is the size of the boards.
+     * @param capacity This is the maximum number of boards.
+     */
+    public BoardArena(int size, int capacity) {
+        this.size = size;
+        this.recordSize = Long.BYTES + size * size;
+        if ((long) recordSize * capacity > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Arena too large: " + capacity + " boards");
+        }
+        this.capacity = capacity;
+        this.buffer = ByteBuffer.allocateDirect(recordSize * capacity);
+    }
+
+    /** Return the number of boards in this arena.
+     * @return Returns the number of boards added. */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * This method stores the numbers of a board.
+     * @param board This is a board of the arena's size.
+     * @return Returns the index of the stored board.
+     * @throws IllegalArgumentException If the board has another size.
+     * @throws IllegalStateException If the arena is full.
+     * */
+    public int add(Board board) {
+        checkSize(board);
+        if (count == capacity) {
+            throw new IllegalStateException("Arena is full");
+        }
+        int base = count * recordSize;
+        buffer.putLong(base, board.hash());
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                buffer.put(base + Long.BYTES + row * size + col, (byte) board.getElement(row, col));
+            }
+        }
+        return count++;
+    }
+
+    /**
+     * This returns the Zobrist hash of a stored board.
+     * @param index This is the index of the board.
+     * @return Returns the hash the board had when it was added.
+     * */
+    public long hash(int index) {
+        return buffer.getLong(index * recordSize);
+    }
+
+    /**
+     * This returns the number at position row col of a stored board.
+     * @param index This is the index of the board.
+     * @param row This is the row in the matrix.
+     * @param col This is the column in the matrix.
+     * @return Returns the number, or 0 for an empty cell.
+     * */
+    public int getElement(int index, int row, int col) {
+        return buffer.get(index * recordSize + Long.BYTES + row * size + col);
+    }
+
+    /**
+     * This method replaces the contents of a board with a stored board.
+     * @param index This is the index of the stored board.
+     * @param board This is a board of the arena's size.
+     * @throws IllegalArgumentException If the board has another size.
+     * */
+    public void load(int index, Board board) {
+        checkSize(board);
+        board.reset();
+        int base = index * recordSize + Long.BYTES;
+        for (int i = 0; i < size * size; i++) {
+            int num = buffer.get(base + i);
+            if (num != 0) {
+                board.setElement(i / size, i % size, num);
+            }
+        }
+    }
+
+    /**
+     * This checks if two stored boards hold the same numbers.
+     * @param i This is the index of one board.
+     * @param j This is the index of the other board.
+     * @return Returns if the boards are equal.
+     * */
+    public boolean equals(int i, int j) {
+        if (hash(i) != hash(j)) {
+            return false;
+        }
+        int a = i * recordSize + Long.BYTES, b = j * recordSize + Long.BYTES;
+        for (int k = 0; k < size * size; k++) {
+            if (buffer.get(a + k) != buffer.get(b + k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This checks if a stored board holds the same numbers as a board.
+     * @param index This is the index of the stored board.
+     * @param board This is a board of the arena's size.
+     * @return Returns if the boards are equal.
+     * @throws IllegalArgumentException If the board has another size.
+     * */
+    public boolean equals(int index, Board board) {
+        checkSize(board);
+        if (hash(index) != board.hash()) {
+            return false;
+        }
+        int base = index * recordSize + Long.BYTES;
+        for (int k = 0; k < size * size; k++) {
+            if (buffer.get(base + k) != board.getElement(k / size, k % size)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This checks that a board has the size of the boards in this arena.
+     * @param board This is the board to be checked.
+     * */
+    private void checkSize(Board board) {
+        if (board.size() != size) {
+            throw new IllegalArgumentException("Board size " + board.size() + " does not match arena size " + size);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package sudoku.model;
+
+/**
+ * Callbacks notified of changes to a {@link Board}. Events are passed as
+ * primitive arguments, so notifying a listener allocates nothing. All
+ * methods do nothing by default; implement only those of interest.
+ *
+ * @see Board#addListener(BoardListener)
+ */
+public interface BoardListener {
+
+    /**
+     * Called after a number is stored into an empty or filled cell.
+     * @param board Board that changed.
+     * @param row Row of the cell.
+     * @param col Column of the cell.
+     * @param oldNum Number the cell held before, or 0 if it was empty.
+     * @param num Number the cell holds now.
+     */
+    default void cellSet(Board board, int row, int col, int oldNum, int num) {
+    }
+
+    /**
+     * Called after a filled cell is cleared.
+     * @param board Board that changed.
+     * @param row Row of the cell.
+     * @param col Column of the cell.
+     * @param oldNum Number the cell held before.
+     */
+    default void cellCleared(Board board, int row, int col, int oldNum) {
+    }
+
+    /**
+     * Called when a move makes a filled peer of the moved cell start or
+     * stop breaking a rule.
+     * @param board Board that changed.
+     * @param row Row of the peer.
+     * @param col Column of the peer.
+     * @param valid Whether the peer is now valid.
+     */
+    default void validityChanged(Board board, int row, int col, boolean valid) {
+    }
+
+    /**
+     * Called when a move completes the board without any conflict.
+     * @param board Board that is solved.
+     */
+    default void solved(Board board) {
+    }
+
+    /**
+     * Called after the board is cleared by {@link Board#reset()}.
+     * @param board Board that was reset.
+     */
+    default void reset(Board board) {
+    }
+}
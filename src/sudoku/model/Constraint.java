@@ -0,0 +1,110 @@
+package sudoku.model;
+
+import java.util.function.IntConsumer;
+
+/**
+ * A rule of a Sudoku variant, checked by a {@link Board} on top of the
+ * row, column and sub-grid rules, such as the diagonals of X-Sudoku or
+ * the cages of Killer Sudoku. A constraint object keeps the incremental
+ * state of one board: the board reports every number moved in or out of
+ * the cells the constraint covers, and asks it whether a cell is valid,
+ * which numbers it forbids in a cell, and which other cells a move may
+ * make valid or invalid. All of these should cost O(1) or O(cells
+ * affected), so that a move stays as cheap with variants as without.
+ * <p>
+ * Cells are numbered row * size + col. Numbers passed to a constraint
+ * are always between 1 and the board size. The board calls the methods
+ * only for the cells returned by {@link #bind(int)}.
+ * <p>
+ * Two constraints are equal if they enforce the same rule over the same
+ * cells, whatever the numbers they have seen, so that boards can tell
+ * whether they play by the same rules.
+ *
+ * @see Board#Board(int, int, int, Constraint...)
+ */
+public interface Constraint {
+
+    /**
+     * This method prepares the state of this constraint for an empty
+     * board of the given size.
+     * @param size This is the size of the board.
+     * @return Returns the cells this constraint covers.
+     * @throws IllegalArgumentException If the constraint does not fit the size.
+     * */
+    int[] bind(int size);
+
+    /** Forget every number, as on an empty board. */
+    void clear();
+
+    /**
+     * This method records a number stored into an empty cell.
+     * @param cell This is the cell.
+     * @param num This is the number.
+     * */
+    void add(int cell, int num);
+
+    /**
+     * This method records a number taken out of a cell.
+     * @param cell This is the cell.
+     * @param num This is the number it held.
+     * */
+    void remove(int cell, int num);
+
+    /**
+     * This checks if the number held by a cell satisfies this constraint.
+     * @param cell This is the cell.
+     * @param num This is the number the cell holds.
+     * @return Returns false if the number breaks the constraint.
+     * */
+    boolean isValid(int cell, int num);
+
+    /**
+     * This returns the numbers this constraint does not allow in a cell,
+     * given the numbers of the other cells.
+     * @param cell This is the cell.
+     * @param own This is the number the cell holds, 0 if it is empty; it
+     * does not count against itself.
+     * @return Returns a bitmask with bit num set for each forbidden number.
+     * */
+    long forbidden(int cell, int own);
+
+    /**
+     * This method reports the other cells whose validity under this
+     * constraint may change when a cell changes, before the change is made.
+     * Reporting more cells than necessary is allowed but costs time.
+     * @param cell This is the cell about to change.
+     * @param oldNum This is the number it holds, 0 if it is empty.
+     * @param num This is the number it will hold, 0 to clear it.
+     * @param affected This receives the cells.
+     * */
+    void peers(int cell, int oldNum, int num, IntConsumer affected);
+
+    /** Return the most cells {@link #peers} reports for one move; it is
+     * asked after {@link #bind(int)}.
+     * @return Returns the largest number of cells reported. */
+    int maxPeers();
+
+    /** Create an unbound constraint with the same rule, for a copy of the board.
+     * @return Returns the new constraint. */
+    Constraint copy();
+
+    /**
+     * This method combines this constraint with another one into a single
+     * constraint enforcing both, such as the two diagonals of X-Sudoku into
+     * one constraint over two regions, so that a move visits fewer objects.
+     * A board combines its constraints this way before binding them.
+     * @param other This is another unbound constraint.
+     * @return Returns a new unbound constraint, or null if the two cannot
+     * be combined, which is the default.
+     * */
+    default Constraint merge(Constraint other) {
+        return null;
+    }
+
+    /**
+     * This method copies the state of a constraint bound to another board
+     * of the same size.
+     * @param other This is a constraint with the same rule, as made by {@link #copy()}.
+     * */
+    void copyFrom(Constraint other);
+}
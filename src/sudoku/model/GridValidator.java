@@ -0,0 +1,218 @@
+package sudoku.model;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
+/**
+ * Checks many completed grids at once for being solutions. Grids are kept
+ * in a flat byte buffer, one byte per cell, row by row, with grid i at
+ * offset {@code i * size * size}, so no {@link Board} is built. A grid
+ * passes if every row, column and sub-grid holds each number from 1 to
+ * size exactly once; a grid with blanks or numbers out of range fails.
+ * <p>
+ * Each grid is checked in a single pass over its cells that ORs one bit
+ * per number into a mask per unit. Since a unit has exactly size cells, it
+ * holds every number once if and only if its mask is full. Blanks and
+ * numbers out of range set bit 0, which no full mask has. Results are
+ * returned as a {@link BitSet} of the failing grids.
+ * <p>
+ * {@link #create(int)} returns a Vector API implementation when the game
+ * was built with the {@code vector} profile and the JVM runs with
+ * {@code --add-modules jdk.incubator.vector}, and this scalar one
+ * otherwise; both give identical results.
+ *
+ * @see Board
+ */
+public class GridValidator {
+
+    /** Number of grids validated per task in parallel runs; a multiple of 64,
+     * so that tasks never share a word of the result. */
+    private static final int TASK_GRIDS = 64 * 64;
+
+    /** Number of grids copied out of a buffer at once, a multiple of 64. */
+    private static final int CHUNK_GRIDS = 4096;
+
+    protected final int size, boxRows, boxCols, cells;
+
+    /** Numbers 1 to size as bits 1 to size. */
+    protected final long full;
+
+    /** Sub-grid of each cell, numbered from size, after the columns. */
+    protected final int[] boxUnit;
+
+    /**
+     * Create a validator for grids of the given size with the default
+     * sub-grid shape of {@link Board#Board(int)}.
+     * @param size This is the size of the grids.
+     */
+    public GridValidator(int size) {
+        this(new Board(size));
+    }
+
+    /**
+     * Create a validator for grids with sub-grids of the given shape.
+     * @param boxRows This is the height of a sub-grid.
+     * @param boxCols This is the width of a sub-grid.
+     */
+    public GridValidator(int boxRows, int boxCols) {
+        this(new Board(boxRows * boxCols, boxRows, boxCols));
+    }
+
+    private GridValidator(Board geometry) {
+        size = geometry.size();
+        boxRows = geometry.boxRows();
+        boxCols = geometry.boxCols();
+        cells = size * size;
+        full = ((1L << size) - 1) << 1;
+        boxUnit = new int[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            boxUnit[cell] = size + geometry.boxIndex(cell / size, cell % size);
+        }
+    }
+
+    /**
+     * This method creates the fastest validator available in this JVM for
+     * grids of the given size.
+     * @param size This is the size of the grids.
+     * @return Returns a Vector API validator if it is available and
+     * supports the size and the CPU has vectors of at least 128 bits, else
+     * a scalar one.
+     * */
+    public static GridValidator create(int size) {
+        Board geometry = new Board(size);
+        try {
+            return (GridValidator) Class.forName("sudoku.model.VectorGridValidator")
+                    .getConstructor(int.class, int.class)
+                    .newInstance(geometry.boxRows(), geometry.boxCols());
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // not built with the vector profile, module not added, size unsupported, or no native vectors
+            return new GridValidator(geometry);
+        }
+    }
+
+    /** Return the size of the grids checked.
+     * @return Returns the number of rows of each grid. */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * This method checks consecutive grids of an array.
+     * @param grids This is the array of grids.
+     * @param offset This is the index of the first cell of the first grid.
+     * @param count This is the number of grids.
+     * @return Returns the set of failing grids, numbered from 0.
+     * */
+    public BitSet validate(byte[] grids, int offset, int count) {
+        checkBounds(grids, offset, count);
+        long[] failures = new long[(count + 63) >>> 6];
+        validate(grids, offset, 0, count, failures);
+        return BitSet.valueOf(failures);
+    }
+
+    /**
+     * This method checks consecutive grids of an array on all cores.
+     * @param grids This is the array of grids.
+     * @param offset This is the index of the first cell of the first grid.
+     * @param count This is the number of grids.
+     * @return Returns the set of failing grids, numbered from 0.
+     * */
+    public BitSet validateParallel(byte[] grids, int offset, int count) {
+        checkBounds(grids, offset, count);
+        long[] failures = new long[(count + 63) >>> 6];
+        int tasks = (count + TASK_GRIDS - 1) / TASK_GRIDS;
+        IntStream.range(0, tasks).parallel().forEach(task -> validate(grids, offset,
+                task * TASK_GRIDS, Math.min(count, (task + 1) * TASK_GRIDS), failures));
+        return BitSet.valueOf(failures);
+    }
+
+    /**
+     * This method checks the grids between the position and the limit of a
+     * buffer, which may be direct or memory-mapped, advancing its position.
+     * @param grids This is the buffer; its remaining bytes must be whole grids.
+     * @return Returns the set of failing grids, numbered from 0 at the position.
+     * */
+    public BitSet validate(ByteBuffer grids) {
+        if (grids.remaining() % cells != 0) {
+            throw new IllegalArgumentException(grids.remaining() + " bytes are not whole grids");
+        }
+        int count = grids.remaining() / cells;
+        long[] failures = new long[(count + 63) >>> 6];
+        byte[] chunk = new byte[Math.min(count, CHUNK_GRIDS) * cells];
+        for (int from = 0; from < count; from += CHUNK_GRIDS) {
+            int n = Math.min(CHUNK_GRIDS, count - from);
+            grids.get(chunk, 0, n * cells);
+            long[] part = new long[(n + 63) >>> 6];
+            validate(chunk, 0, 0, n, part);
+            // CHUNK_GRIDS is a multiple of 64, so words are copied whole
+            System.arraycopy(part, 0, failures, from >>> 6, part.length);
+        }
+        return BitSet.valueOf(failures);
+    }
+
+    /**
+     * This checks a single grid.
+     * @param grids This is the array holding the grid.
+     * @param offset This is the index of the first cell of the grid.
+     * @return Returns true if the grid is a solution.
+     * */
+    public boolean isSolution(byte[] grids, int offset) {
+        checkBounds(grids, offset, 1);
+        return isSolution(grids, offset, new long[2 * size]);
+    }
+
+    /**
+     * This method checks a range of grids and sets the bit of each failing
+     * grid. Implementations may only write the words of the range.
+     * @param grids This is the array of grids.
+     * @param offset This is the index of the first cell of grid 0.
+     * @param from This is the first grid to check, a multiple of 64 unless
+     * it is the only range.
+     * @param to This is the grid after the last one to check.
+     * @param failures These are the result bits, grid i at bit i.
+     * */
+    protected void validate(byte[] grids, int offset, int from, int to, long[] failures) {
+        long[] units = new long[2 * size];
+        for (int i = from; i < to; i++) {
+            if (!isSolution(grids, offset + i * cells, units)) {
+                failures[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+
+    /**
+     * This checks a grid using the given masks as scratch space.
+     * @param grids This is the array holding the grid.
+     * @param at This is the index of the first cell of the grid.
+     * @param units This is scratch space for one mask per column and sub-grid.
+     * @return Returns true if the grid is a solution.
+     * */
+    private boolean isSolution(byte[] grids, int at, long[] units) {
+        for (int i = 0; i < units.length; i++) {
+            units[i] = 0;
+        }
+        long wrong = 0;
+        for (int row = 0, cell = 0; row < size; row++) {
+            long rowBits = 0;
+            for (int col = 0; col < size; col++, cell++) {
+                int num = grids[at + cell] & 0xFF;
+                long bit = num <= size ? 1L << num : 1L;
+                rowBits |= bit;
+                units[col] |= bit;
+                units[boxUnit[cell]] |= bit;
+            }
+            wrong |= rowBits ^ full;
+        }
+        for (long unit : units) {
+            wrong |= unit ^ full;
+        }
+        return wrong == 0;
+    }
+
+    private void checkBounds(byte[] grids, int offset, int count) {
+        if (offset < 0 || count < 0 || (long) offset + (long) count * cells > grids.length) {
+            throw new IllegalArgumentException("Grids out of range: " + count + " at " + offset);
+        }
+    }
+}
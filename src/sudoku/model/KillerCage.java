@@ -0,0 +1,180 @@
+package sudoku.model;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A cage of Killer Sudoku: its numbers may not repeat and must add up to
+ * the given sum. A cage keeps a count, a sum of cell indexes and a bit per
+ * number, its running total and its number of filled cells, so that a move
+ * is checked in O(1). A cell of a cage is invalid if its number repeats,
+ * if the total leaves less than 1 for each empty cell, or if the cage is
+ * full and the total falls short.
+ */
+public class KillerCage implements Constraint {
+
+    private final int sum;
+    private final int[] cells;
+
+    private int size;
+    private int[] count, indexSum;
+    private long mask;
+    private int total, filled;
+
+    /**
+     * Create a cage.
+     * @param sum This is the sum of the numbers of the cage.
+     * @param cells These are the cells of the cage, numbered row * size + col.
+     */
+    public KillerCage(int sum, int... cells) {
+        if (sum < 1 || cells.length == 0) {
+            throw new IllegalArgumentException("Invalid cage: sum " + sum + " over " + cells.length + " cells");
+        }
+        this.sum = sum;
+        this.cells = cells.clone();
+    }
+
+    /** Return the sum of the numbers of this cage.
+     * @return Returns the sum. */
+    public int sum() {
+        return sum;
+    }
+
+    /** Return the cells of this cage.
+     * @return Returns a copy of the cells, numbered row * size + col. */
+    public int[] cells() {
+        return cells.clone();
+    }
+
+    @Override
+    public int[] bind(int size) {
+        if (cells.length > size) {
+            throw new IllegalArgumentException("A cage of " + cells.length + " cells cannot hold distinct numbers up to " + size);
+        }
+        boolean[] seen = new boolean[size * size];
+        for (int cell : cells) {
+            if (cell < 0 || cell >= size * size || seen[cell]) {
+                throw new IllegalArgumentException("Invalid cage cell " + cell + " on a board of size " + size);
+            }
+            seen[cell] = true;
+        }
+        this.size = size;
+        count = new int[size + 1];
+        indexSum = new int[size + 1];
+        clear();
+        return cells.clone();
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(count, 0);
+        Arrays.fill(indexSum, 0);
+        mask = 0;
+        total = 0;
+        filled = 0;
+    }
+
+    @Override
+    public void add(int cell, int num) {
+        count[num]++;
+        indexSum[num] += cell;
+        mask |= 1L << num;
+        total += num;
+        filled++;
+    }
+
+    @Override
+    public void remove(int cell, int num) {
+        indexSum[num] -= cell;
+        if (--count[num] == 0) {
+            mask &= ~(1L << num);
+        }
+        total -= num;
+        filled--;
+    }
+
+    @Override
+    public boolean isValid(int cell, int num) {
+        return count[num] == 1 && fits(total, filled);
+    }
+
+    /** Return if a total over a number of filled cells can still make up
+     * the sum, with at least 1 in each empty cell. */
+    private boolean fits(int total, int filled) {
+        return total + cells.length - filled <= sum && (filled < cells.length || total == sum);
+    }
+
+    @Override
+    public long forbidden(int cell, int own) {
+        long full = ((1L << size) - 1) << 1;
+        long used = own != 0 && count[own] == 1 ? mask & ~(1L << own) : mask;
+        int othersFilled = own != 0 ? filled - 1 : filled;
+        int left = sum - (total - own);
+        int empties = cells.length - 1 - othersFilled;
+        if (empties == 0) {
+            // the last cell must make up the sum exactly
+            return left >= 1 && left <= size ? used | (full & ~(1L << left)) : full;
+        }
+        // every other empty cell still needs at least 1
+        int limit = left - empties;
+        if (limit < 1) {
+            return full;
+        }
+        return limit >= size ? used : used | (full & ~((1L << (limit + 1)) - 1));
+    }
+
+    @Override
+    public void peers(int cell, int oldNum, int num, IntConsumer affected) {
+        int after = total - oldNum + num;
+        int afterFilled = filled - (oldNum != 0 ? 1 : 0) + (num != 0 ? 1 : 0);
+        if (fits(total, filled) != fits(after, afterFilled)) {
+            // the total changes the state of every cell of the cage
+            for (int other : cells) {
+                if (other != cell) {
+                    affected.accept(other);
+                }
+            }
+            return;
+        }
+        if (oldNum != 0 && count[oldNum] == 2) {
+            affected.accept(indexSum[oldNum] - cell); // the other holder no longer repeats
+        }
+        if (num != 0 && count[num] == 1) {
+            affected.accept(indexSum[num]); // the lone holder now repeats
+        }
+    }
+
+    @Override
+    public int maxPeers() {
+        return cells.length - 1;
+    }
+
+    @Override
+    public Constraint copy() {
+        return new KillerCage(sum, cells);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof KillerCage)) {
+            return false;
+        }
+        KillerCage other = (KillerCage) o;
+        return sum == other.sum && Arrays.equals(cells, other.cells);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * sum + Arrays.hashCode(cells);
+    }
+
+    @Override
+    public void copyFrom(Constraint other) {
+        KillerCage from = (KillerCage) other;
+        System.arraycopy(from.count, 0, count, 0, count.length);
+        System.arraycopy(from.indexSum, 0, indexSum, 0, indexSum.length);
+        mask = from.mask;
+        total = from.total;
+        filled = from.filled;
+    }
+}
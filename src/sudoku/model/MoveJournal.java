@@ -0,0 +1,354 @@
+package sudoku.model;
+
+import java.util.ArrayDeque;
+
+/**
+ * Records the moves made on a board for undo and redo. Each move is one
+ * long holding the cell index, the old number and the new number, kept in
+ * a ring buffer that doubles as needed up to a maximum, after which the
+ * oldest moves are forgotten. Undo and redo replay a single move through
+ * {@link Board#setElement(int, int, int)}, so they cost O(1), allocate
+ * nothing, and keep the validity state and the listeners of the board up
+ * to date.
+ * <p>
+ * Moves are numbered from 0 for the whole life of the journal. Every
+ * {@link #CHECKPOINT_INTERVAL} moves a copy of the cells is kept, so that
+ * {@link #jumpTo(long)} can reach any move far away by restoring the
+ * nearest copy and replaying the moves after it. Solvers can use
+ * {@link #mark()} and {@link #rollback(long)} to backtrack without copying
+ * the board.
+ * <p>
+ * The journal listens to the board: moves made directly on the board are
+ * recorded, and a reset clears the journal. A journal is not thread-safe.
+ */
+public class MoveJournal implements BoardListener {
+
+    /** Number of moves between two copies of the cells. */
+    public static final int CHECKPOINT_INTERVAL = 1024;
+
+    /** Number of moves kept by default. */
+    public static final int DEFAULT_MAX_MOVES = 1 << 20;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** Board whose moves are recorded. */
+    private final Board board;
+    private final int size;
+
+    /** Moves as (cell << 16) | (oldNum << 8) | num; move i is at i & mask. */
+    private long[] moves = new long[INITIAL_CAPACITY];
+    private final int maxCapacity;
+
+    /** Oldest move kept, next move to be redone or overwritten, and end of
+     * the moves that can be redone. */
+    private long first, cursor, end;
+
+    /** Set while the journal itself changes the board. */
+    private boolean replaying;
+
+    /** Copies of the cells, oldest first, and arrays of dropped copies. */
+    private final ArrayDeque<Checkpoint> checkpoints = new ArrayDeque<>();
+    private final ArrayDeque<byte[]> spare = new ArrayDeque<>();
+
+    /** A copy of the cells as they were before a move. */
+    private static class Checkpoint {
+        long position;
+        byte[] cells;
+    }
+
+    /**
+     * Create a journal for the given board keeping up to one million moves,
+     * and attach it to the board.
+     * @param board This is the board whose moves are recorded.
+     */
+    public MoveJournal(Board board) {
+        this(board, DEFAULT_MAX_MOVES);
+    }
+
+    /**
+     * Create a journal for the given board and attach it to the board.
+     * @param board This is the board whose moves are recorded.
+     * @param maxMoves This is the number of moves kept; it is rounded up to
+     * a power of two.
+     */
+    public MoveJournal(Board board, int maxMoves) {
+        this.board = board;
+        this.size = board.size();
+        this.maxCapacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, maxMoves - 1)) << 1);
+        checkpoint();
+        board.addListener(this);
+    }
+
+    /** Detach this journal from its board. */
+    public void close() {
+        board.removeListener(this);
+    }
+
+    /** Return the number of the next move.
+     * @return Returns the number of moves made and not undone. */
+    public long position() {
+        return cursor;
+    }
+
+    /** Return the number of the oldest move that can still be undone.
+     * @return Returns the earliest position {@link #jumpTo(long)} accepts. */
+    public long first() {
+        return first;
+    }
+
+    /** Return the position after the last move that can be redone.
+     * @return Returns the latest position {@link #jumpTo(long)} accepts. */
+    public long end() {
+        return end;
+    }
+
+    /** Return if there is a move to undo.
+     * @return Returns true if undo would change the board. */
+    public boolean canUndo() {
+        return cursor > first;
+    }
+
+    /** Return if there is a move to redo.
+     * @return Returns true if redo would change the board. */
+    public boolean canRedo() {
+        return cursor < end;
+    }
+
+    /**
+     * This method takes back the last move.
+     * @return Returns false if there was no move to undo.
+     * */
+    public boolean undo() {
+        if (!canUndo()) {
+            return false;
+        }
+        long move = moves[(int) (--cursor & (moves.length - 1))];
+        apply(cell(move), oldNum(move));
+        return true;
+    }
+
+    /**
+     * This method makes again the last move taken back.
+     * @return Returns false if there was no move to redo.
+     * */
+    public boolean redo() {
+        if (!canRedo()) {
+            return false;
+        }
+        long move = moves[(int) (cursor++ & (moves.length - 1))];
+        apply(cell(move), newNum(move));
+        return true;
+    }
+
+    /**
+     * This method returns a position to come back to with
+     * {@link #rollback(long)}.
+     * @return Returns the current position.
+     * */
+    public long mark() {
+        return cursor;
+    }
+
+    /**
+     * This method undoes every move made since a mark and forgets them, so
+     * they cannot be redone.
+     * @param mark This is a position returned by {@link #mark()}.
+     * */
+    public void rollback(long mark) {
+        while (cursor > mark && undo()) {
+            // each undo is O(1)
+        }
+        truncate();
+    }
+
+    /**
+     * This method brings the board to the state it had at the given
+     * position, undoing or redoing moves. A distant position is reached by
+     * restoring the nearest copy of the cells at or before it and replaying
+     * the moves after the copy.
+     * @param position This is a position between {@link #first()} and
+     * {@link #end()}.
+     * */
+    public void jumpTo(long position) {
+        if (position < first || position > end) {
+            throw new IllegalArgumentException("Position out of range: " + position);
+        }
+        if (Math.abs(position - cursor) > size * size) {
+            Checkpoint nearest = null;
+            for (Checkpoint checkpoint : checkpoints) {
+                if (checkpoint.position <= position) {
+                    nearest = checkpoint;
+                }
+            }
+            if (nearest != null && position - nearest.position < Math.abs(position - cursor)) {
+                restore(nearest);
+            }
+        }
+        while (cursor > position) {
+            undo();
+        }
+        while (cursor < position) {
+            redo();
+        }
+    }
+
+    /**
+     * This returns a recorded move in its packed form, for saving.
+     * @param position This is a position from {@link #first()} to before
+     * {@link #end()}.
+     * @return Returns the move as a long.
+     * */
+    public long move(long position) {
+        if (position < first || position >= end) {
+            throw new IllegalArgumentException("Position out of range: " + position);
+        }
+        return moves[(int) (position & (moves.length - 1))];
+    }
+
+    /**
+     * This method replaces the journal with saved moves. The board must
+     * already be in the state the moves lead to at the cursor.
+     * @param saved These are moves returned by {@link #move(long)}, oldest first.
+     * @param count This is the number of moves.
+     * @param position This is the position of the board among the moves.
+     * */
+    public void restore(long[] saved, int count, int position) {
+        if (position < 0 || position > count || count > maxCapacity) {
+            throw new IllegalArgumentException("Invalid journal: " + position + " of " + count);
+        }
+        while (moves.length < count) {
+            moves = new long[moves.length * 2];
+        }
+        System.arraycopy(saved, 0, moves, 0, count);
+        first = 0;
+        end = count;
+        cursor = position;
+        while (!checkpoints.isEmpty()) {
+            spare.push(checkpoints.pollLast().cells);
+        }
+        checkpoint();
+    }
+
+    /** Forget all moves; the current board becomes the oldest state. */
+    public void clear() {
+        first = cursor = end = 0;
+        while (!checkpoints.isEmpty()) {
+            spare.push(checkpoints.pollLast().cells);
+        }
+        checkpoint();
+    }
+
+    @Override
+    public void cellSet(Board b, int row, int col, int oldNum, int num) {
+        record(row * size + col, oldNum, num);
+    }
+
+    @Override
+    public void cellCleared(Board b, int row, int col, int oldNum) {
+        record(row * size + col, oldNum, 0);
+    }
+
+    @Override
+    public void reset(Board b) {
+        if (!replaying) {
+            clear();
+        }
+    }
+
+    /**
+     * This method appends a move made on the board, dropping the moves that
+     * could have been redone.
+     * @param cell This is the index of the cell.
+     * @param oldNum This is the number the cell held before.
+     * @param num This is the number the cell holds now.
+     * */
+    private void record(int cell, int oldNum, int num) {
+        if (replaying) {
+            return;
+        }
+        truncate();
+        if (end - first == moves.length) {
+            if (moves.length < maxCapacity) {
+                grow();
+            } else {
+                first++;
+                while (!checkpoints.isEmpty() && checkpoints.peekFirst().position < first) {
+                    spare.push(checkpoints.pollFirst().cells);
+                }
+            }
+        }
+        moves[(int) (end & (moves.length - 1))] = (long) cell << 16 | (oldNum & 0xFF) << 8 | (num & 0xFF);
+        cursor = ++end;
+        if (cursor % CHECKPOINT_INTERVAL == 0) {
+            checkpoint();
+        }
+    }
+
+    /** Drop the moves after the cursor and the copies taken after it. */
+    private void truncate() {
+        end = cursor;
+        while (!checkpoints.isEmpty() && checkpoints.peekLast().position > cursor) {
+            spare.push(checkpoints.pollLast().cells);
+        }
+    }
+
+    /** Double the ring buffer, keeping each move at its position. */
+    private void grow() {
+        long[] bigger = new long[moves.length * 2];
+        for (long i = first; i < end; i++) {
+            bigger[(int) (i & (bigger.length - 1))] = moves[(int) (i & (moves.length - 1))];
+        }
+        moves = bigger;
+    }
+
+    /** Keep a copy of the cells at the cursor. */
+    private void checkpoint() {
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.position = cursor;
+        checkpoint.cells = spare.isEmpty() ? new byte[size * size] : spare.pop();
+        for (int cell = 0; cell < size * size; cell++) {
+            checkpoint.cells[cell] = (byte) board.getElement(cell / size, cell % size);
+        }
+        checkpoints.addLast(checkpoint);
+    }
+
+    /**
+     * This method sets every cell that differs from a copy and moves the
+     * cursor to the copy's position.
+     * @param checkpoint This is the copy to be restored.
+     * */
+    private void restore(Checkpoint checkpoint) {
+        for (int cell = 0; cell < size * size; cell++) {
+            if (board.getElement(cell / size, cell % size) != checkpoint.cells[cell]) {
+                apply(cell, checkpoint.cells[cell]);
+            }
+        }
+        cursor = checkpoint.position;
+    }
+
+    /**
+     * This method changes a cell without recording the change.
+     * @param cell This is the index of the cell.
+     * @param num This is the number to be stored, 0 to clear the cell.
+     * */
+    private void apply(int cell, int num) {
+        replaying = true;
+        try {
+            board.setElement(cell / size, cell % size, num);
+        } finally {
+            replaying = false;
+        }
+    }
+
+    private static int cell(long move) {
+        return (int) (move >>> 16);
+    }
+
+    private static int oldNum(long move) {
+        return (int) (move >>> 8) & 0xFF;
+    }
+
+    private static int newNum(long move) {
+        return (int) move & 0xFF;
+    }
+}
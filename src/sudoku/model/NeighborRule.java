@@ -0,0 +1,198 @@
+package sudoku.model;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A constraint between every cell and the cells at fixed offsets from it,
+ * such as anti-knight Sudoku, where no two cells a knight's move apart
+ * hold the same number, or non-consecutive Sudoku, where orthogonal
+ * neighbors never hold consecutive numbers. For every cell and number the
+ * rule counts the neighbors forbidding that number there, and keeps the
+ * numbers with a nonzero count as a bitmask, so that a move costs one
+ * update per neighbor and checking a cell costs O(1).
+ */
+public class NeighborRule implements Constraint {
+
+    private static final int[] KNIGHT = {-2, -1, -2, 1, -1, -2, -1, 2, 1, -2, 1, 2, 2, -1, 2, 1};
+    private static final int[] KING = {-1, -1, -1, 0, -1, 1, 0, -1, 0, 1, 1, -1, 1, 0, 1, 1};
+    private static final int[] ORTHOGONAL = {-1, 0, 0, -1, 0, 1, 1, 0};
+
+    /** Row and column offsets of the neighbors, in pairs. */
+    private final int[] offsets;
+
+    /** Whether neighbors may not be consecutive, rather than not equal. */
+    private final boolean consecutive;
+
+    private int size;
+
+    /** The neighbors of cell i are neighbors[first[i]] up to first[i + 1]. */
+    private int[] first, neighbors;
+
+    /** Number held by each cell, and for each cell and number the count of
+     * neighbors forbidding it, at cell * (size + 1) + num. */
+    private int[] value, count;
+
+    /** Numbers forbidden in each cell by its neighbors. */
+    private long[] forbidden;
+
+    private NeighborRule(int[] offsets, boolean consecutive) {
+        this.offsets = offsets;
+        this.consecutive = consecutive;
+    }
+
+    /** Create the rule that cells a knight's move apart differ.
+     * @return Returns the rule. */
+    public static NeighborRule antiKnight() {
+        return new NeighborRule(KNIGHT, false);
+    }
+
+    /** Create the rule that cells a king's move apart, diagonals included, differ.
+     * @return Returns the rule. */
+    public static NeighborRule antiKing() {
+        return new NeighborRule(KING, false);
+    }
+
+    /** Create the rule that orthogonal neighbors do not hold consecutive numbers.
+     * @return Returns the rule. */
+    public static NeighborRule nonConsecutive() {
+        return new NeighborRule(ORTHOGONAL, true);
+    }
+
+    @Override
+    public int[] bind(int size) {
+        this.size = size;
+        int cells = size * size;
+        first = new int[cells + 1];
+        int[] found = new int[cells * offsets.length / 2];
+        int n = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            first[cell] = n;
+            int row = cell / size, col = cell % size;
+            for (int i = 0; i < offsets.length; i += 2) {
+                int r = row + offsets[i], c = col + offsets[i + 1];
+                if (r >= 0 && r < size && c >= 0 && c < size) {
+                    found[n++] = r * size + c;
+                }
+            }
+        }
+        first[cells] = n;
+        neighbors = Arrays.copyOf(found, n);
+        value = new int[cells];
+        count = new int[cells * (size + 1)];
+        forbidden = new long[cells];
+        int[] all = new int[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            all[cell] = cell;
+        }
+        return all;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(value, 0);
+        Arrays.fill(count, 0);
+        Arrays.fill(forbidden, 0);
+    }
+
+    @Override
+    public void add(int cell, int num) {
+        value[cell] = num;
+        update(cell, num, 1);
+    }
+
+    @Override
+    public void remove(int cell, int num) {
+        value[cell] = 0;
+        update(cell, num, -1);
+    }
+
+    /**
+     * This method adds or takes away the numbers a number in a cell
+     * forbids in each of its neighbors.
+     * @param cell This is the cell.
+     * @param num This is its number.
+     * @param delta This is 1 to add, -1 to take away.
+     * */
+    private void update(int cell, int num, int delta) {
+        for (int i = first[cell]; i < first[cell + 1]; i++) {
+            int neighbor = neighbors[i];
+            if (consecutive) {
+                mark(neighbor, num - 1, delta);
+                mark(neighbor, num + 1, delta);
+            } else {
+                mark(neighbor, num, delta);
+            }
+        }
+    }
+
+    private void mark(int cell, int num, int delta) {
+        if (num < 1 || num > size) {
+            return;
+        }
+        int at = cell * (size + 1) + num;
+        count[at] += delta;
+        if (count[at] == 0) {
+            forbidden[cell] &= ~(1L << num);
+        } else {
+            forbidden[cell] |= 1L << num;
+        }
+    }
+
+    @Override
+    public boolean isValid(int cell, int num) {
+        return count[cell * (size + 1) + num] == 0;
+    }
+
+    @Override
+    public long forbidden(int cell, int own) {
+        return forbidden[cell];
+    }
+
+    @Override
+    public void peers(int cell, int oldNum, int num, IntConsumer affected) {
+        for (int i = first[cell]; i < first[cell + 1]; i++) {
+            int neighbor = neighbors[i];
+            int held = value[neighbor];
+            if (held != 0 && (conflicts(held, oldNum) || conflicts(held, num))) {
+                affected.accept(neighbor);
+            }
+        }
+    }
+
+    private boolean conflicts(int a, int b) {
+        return b != 0 && (consecutive ? Math.abs(a - b) == 1 : a == b);
+    }
+
+    @Override
+    public int maxPeers() {
+        return offsets.length / 2;
+    }
+
+    @Override
+    public Constraint copy() {
+        return new NeighborRule(offsets, consecutive);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof NeighborRule)) {
+            return false;
+        }
+        NeighborRule other = (NeighborRule) o;
+        return consecutive == other.consecutive && Arrays.equals(offsets, other.offsets);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(offsets) + (consecutive ? 1 : 0);
+    }
+
+    @Override
+    public void copyFrom(Constraint other) {
+        NeighborRule from = (NeighborRule) other;
+        System.arraycopy(from.value, 0, value, 0, value.length);
+        System.arraycopy(from.count, 0, count, 0, count.length);
+        System.arraycopy(from.forbidden, 0, forbidden, 0, forbidden.length);
+    }
+}
@@ -0,0 +1,104 @@
+package sudoku.model;
+
+import java.util.Arrays;
+
+/**
+ * An immutable, compact snapshot of the numbers of a {@link Board}: one
+ * byte per cell plus the board's Zobrist hash, sub-grid shape and variant
+ * constraints. Snapshots are cheap to hold by the million in hash sets and
+ * transposition tables; the constraints are shared with the packed board,
+ * not copied, until a snapshot is unpacked. Equality compares the hashes
+ * before the cells, and ignores the constraints.
+ *
+ * @see Board#pack()
+ * @see BoardArena
+ */
+public final class PackedBoard {
+
+    private final int size, boxRows, boxCols;
+    private final byte[] cells;
+    private final long hash;
+
+    /** Constraints of the packed board, used only as templates for copies. */
+    private final Constraint[] constraints;
+
+    PackedBoard(int size, int boxRows, int boxCols, Constraint[] constraints, byte[] cells, long hash) {
+        this.size = size;
+        this.boxRows = boxRows;
+        this.boxCols = boxCols;
+        this.constraints = constraints;
+        this.cells = cells;
+        this.hash = hash;
+    }
+
+    /** Return the size of the packed board.
+     * @return Returns the number of rows. */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * This returns the number at position row col.
+     * @param row This is the row in the matrix.
+     * @param col This is the column in the matrix.
+     * @return Returns the number, or 0 for an empty cell.
+     * */
+    public int getElement(int row, int col) {
+        return cells[row * size + col];
+    }
+
+    /** Return the Zobrist hash of the packed board.
+     * @return Returns the same value as {@link Board#hash()} at packing time. */
+    public long hash() {
+        return hash;
+    }
+
+    /** Return the height of a sub-grid of the packed board.
+     * @return Returns the number of rows of a sub-grid. */
+    public int boxRows() {
+        return boxRows;
+    }
+
+    /** Return the width of a sub-grid of the packed board.
+     * @return Returns the number of columns of a sub-grid. */
+    public int boxCols() {
+        return boxCols;
+    }
+
+    /**
+     * This creates a board holding the packed numbers, with the sub-grid
+     * shape and copies of the constraints of the packed board.
+     * @return Returns a new board.
+     * */
+    public Board unpack() {
+        Constraint[] copies = new Constraint[constraints.length];
+        for (int i = 0; i < copies.length; i++) {
+            copies[i] = constraints[i].copy();
+        }
+        Board board = new Board(size, boxRows, boxCols, copies);
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] != 0) {
+                board.setElement(i / size, i % size, cells[i]);
+            }
+        }
+        return board;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PackedBoard)) {
+            return false;
+        }
+        PackedBoard other = (PackedBoard) o;
+        return hash == other.hash && size == other.size && boxRows == other.boxRows
+                && Arrays.equals(cells, other.cells);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -0,0 +1,38 @@
+package sudoku.model;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist keys for hashing boards: one random 64-bit key per cell and
+ * number, so that a board's hash is the XOR of the keys of its filled cells
+ * and changes by two XORs per move. Keys come from a fixed seed, so hashes
+ * are stable across runs.
+ */
+final class Zobrist {
+
+    private static final long SEED = 0x5EED5D0C0L;
+
+    /** Keys of each size, created on first use. */
+    private static final long[][] KEYS = new long[64][];
+
+    private Zobrist() {
+    }
+
+    /**
+     * This returns the keys of a board size, indexed by
+     * (row * size + col) * (size + 1) + num.
+     * @param size This is the board size.
+     * @return Returns the shared key table; callers must not modify it.
+     * */
+    static synchronized long[] keys(int size) {
+        if (KEYS[size] == null) {
+            SplittableRandom random = new SplittableRandom(SEED + size);
+            long[] keys = new long[size * size * (size + 1)];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = random.nextLong();
+            }
+            KEYS[size] = keys;
+        }
+        return KEYS[size];
+    }
+}
@@ -0,0 +1,251 @@
+package sudoku.solver;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+import sudoku.model.Board;
+
+/**
+ * Solves collections of boards across all cores on a {@link ForkJoinPool}.
+ * Every worker thread keeps its own {@link DlxSolver}, so the cover matrix
+ * is built once per worker and geometry. A single hard board can also be
+ * solved by splitting its search tree into subtasks. Boards can be rated
+ * the same way, with a {@link Rater} per worker.
+ *
+ * @see DlxSolver
+ */
+public class BatchSolver {
+
+    /** Number of puzzles a task solves sequentially instead of splitting. */
+    private static final int THRESHOLD = 64;
+
+    /** Pool running the tasks. */
+    private final ForkJoinPool pool;
+
+    /** Solver state of each worker thread. */
+    private final ThreadLocal<DlxSolver> solvers = ThreadLocal.withInitial(DlxSolver::new);
+
+    /** Rater of each worker thread. */
+    private final ThreadLocal<Rater> raters = ThreadLocal.withInitial(Rater::new);
+
+    /** Create a batch solver using all available processors. */
+    public BatchSolver() {
+        this(new ForkJoinPool(Runtime.getRuntime().availableProcessors()));
+    }
+
+    /** Create a batch solver running on the given pool.
+     * @param pool This is the pool the tasks are submitted to. */
+    public BatchSolver(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * This method solves every board of the list in place.
+     * @param puzzles These are the boards to be solved.
+     * @return Returns the solved and unsolvable counts and the elapsed time.
+     * */
+    public Result solveAll(List<Board> puzzles) {
+        Result result = new Result();
+        long start = System.nanoTime();
+        pool.invoke(new RangeTask(0, puzzles.size(), i -> solveOne(puzzles.get(i), result)));
+        result.elapsed = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * This method rates every board of the list. The boards are not changed.
+     * @param puzzles These are the boards to be rated.
+     * @return Returns the rating of each board, in list order.
+     * */
+    public Rater.Rating[] rateAll(List<Board> puzzles) {
+        Rater.Rating[] ratings = new Rater.Rating[puzzles.size()];
+        pool.invoke(new RangeTask(0, puzzles.size(), i -> ratings[i] = raters.get().rate(puzzles.get(i))));
+        return ratings;
+    }
+
+    /**
+     * This method solves every board of the stream in place. The stream is
+     * consumed in parallel on this solver's pool.
+     * @param puzzles These are the boards to be solved.
+     * @return Returns the solved and unsolvable counts and the elapsed time.
+     * */
+    public Result solveAll(Stream<Board> puzzles) {
+        Result result = new Result();
+        long start = System.nanoTime();
+        pool.submit(() -> puzzles.parallel().forEach(board -> solveOne(board, result))).join();
+        result.elapsed = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * This method solves a single board in place by branching on the
+     * candidates of its most constrained cells down to the given depth and
+     * solving the branches as parallel subtasks.
+     * @param board This is the board to be solved.
+     * @param depth This is the number of levels of the search tree to split.
+     * @return Returns whether a solution exists.
+     * */
+    public boolean solveSplit(Board board, int depth) {
+        Board solution = pool.invoke(new SplitTask(new Board(board), depth, new AtomicBoolean()));
+        if (solution == null) {
+            return false;
+        }
+        for (int row = 0; row < board.size(); row++) {
+            for (int col = 0; col < board.size(); col++) {
+                if (board.getElement(row, col) == 0) {
+                    board.setElement(row, col, solution.getElement(row, col));
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Shut down the pool of this solver. */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * This method solves a board with the calling worker's solver.
+     * @param board This is the board to be solved.
+     * @param result This is where the outcome is counted.
+     * */
+    private void solveOne(Board board, Result result) {
+        if (solvers.get().solve(board)) {
+            result.solved.increment();
+        } else {
+            result.unsolvable.increment();
+        }
+    }
+
+    /** Task processing a range of list indexes, halving it until it is
+     * small enough. */
+    @SuppressWarnings("serial")
+    private static class RangeTask extends RecursiveAction {
+        private final int from, to;
+        private final IntConsumer action;
+
+        RangeTask(int from, int to, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    action.accept(i);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(from, mid, action), new RangeTask(mid, to, action));
+        }
+    }
+
+    /** Task solving one branch of a board's search tree. */
+    @SuppressWarnings("serial")
+    private class SplitTask extends RecursiveTask<Board> {
+        private final Board board;
+        private final int depth;
+        private final AtomicBoolean found;
+
+        SplitTask(Board board, int depth, AtomicBoolean found) {
+            this.board = board;
+            this.depth = depth;
+            this.found = found;
+        }
+
+        @Override
+        protected Board compute() {
+            if (found.get()) {
+                return null;
+            }
+            int size = board.size();
+            int bestRow = -1, bestCol = -1, bestCount = Integer.MAX_VALUE;
+            for (int row = 0; row < size && depth > 0; row++) {
+                for (int col = 0; col < size; col++) {
+                    if (board.getElement(row, col) == 0) {
+                        int n = Long.bitCount(board.candidates(row, col));
+                        if (n < bestCount) {
+                            bestRow = row;
+                            bestCol = col;
+                            bestCount = n;
+                        }
+                    }
+                }
+            }
+            if (bestRow < 0 || bestCount <= 1) {
+                // leaf, or nothing worth splitting on
+                if (solvers.get().solve(board)) {
+                    found.set(true);
+                    return board;
+                }
+                return null;
+            }
+            long candidates = board.candidates(bestRow, bestCol);
+            SplitTask[] tasks = new SplitTask[bestCount];
+            for (int i = 0; i < bestCount; i++) {
+                int num = Long.numberOfTrailingZeros(candidates);
+                candidates &= candidates - 1;
+                Board branch = i == bestCount - 1 ? board : new Board(board);
+                branch.setElement(bestRow, bestCol, num);
+                tasks[i] = new SplitTask(branch, depth - 1, found);
+            }
+            for (int i = 1; i < tasks.length; i++) {
+                tasks[i].fork();
+            }
+            Board solution = tasks[0].compute();
+            for (int i = 1; i < tasks.length; i++) {
+                Board other = tasks[i].join();
+                if (solution == null) {
+                    solution = other;
+                }
+            }
+            return solution;
+        }
+    }
+
+    /** Outcome of a batch solve. */
+    public static class Result {
+        private final LongAdder solved = new LongAdder();
+        private final LongAdder unsolvable = new LongAdder();
+        private long elapsed;
+
+        /** Return the number of boards solved.
+         * @return Returns the solved count. */
+        public long solved() {
+            return solved.sum();
+        }
+
+        /** Return the number of boards without a solution.
+         * @return Returns the unsolvable count. */
+        public long unsolvable() {
+            return unsolvable.sum();
+        }
+
+        /** Return the wall-clock time of the batch.
+         * @return Returns the elapsed time in nanoseconds. */
+        public long elapsedNanos() {
+            return elapsed;
+        }
+
+        /** Return the number of boards processed per second.
+         * @return Returns the throughput of the batch. */
+        public double puzzlesPerSecond() {
+            return elapsed == 0 ? 0 : (solved() + unsolvable()) * 1e9 / elapsed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d solved, %d unsolvable in %.3f s (%.0f puzzles/s)",
+                    solved(), unsolvable(), elapsed / 1e9, puzzlesPerSecond());
+        }
+    }
+}
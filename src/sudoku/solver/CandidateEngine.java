@@ -0,0 +1,481 @@
+package sudoku.solver;
+
+import java.util.Arrays;
+import sudoku.model.Board;
+import sudoku.model.BoardListener;
+
+/**
+ * Keeps the pencil marks of a board, one candidate bitset per cell, and
+ * finds placements with human techniques. The candidates follow the board
+ * through its events: placing a number clears it from the peers of the
+ * cell only, in O(size). On a board with variant constraints, whose
+ * peers the engine does not know, it also narrows every cell to the
+ * numbers the board still allows, in O(size^2). Clearing a cell may
+ * revive candidates that an earlier deduction removed, so it rebuilds all
+ * candidates instead.
+ * <p>
+ * Deductions are made on a worklist of dirty units, the rows, columns and
+ * sub-grids in which a candidate changed since they were last examined;
+ * a unit on which every technique has failed leaves the worklist until
+ * one of its cells changes again. An engine is not thread-safe and must
+ * be used on the thread that changes the board.
+ *
+ * @see Technique
+ */
+public class CandidateEngine implements BoardListener {
+
+    /** Techniques that remove candidates, from the easiest. */
+    private static final Technique[] ELIMINATIONS = {
+            Technique.LOCKED_CANDIDATES, Technique.NAKED_PAIR, Technique.HIDDEN_PAIR};
+
+    /** Tried-mask of a unit on which every technique has failed. */
+    private static final int ALL_TRIED = ((1 << Technique.values().length) - 1) & ~1;
+
+    private final Board board;
+    private final int size;
+
+    /** Candidates of each cell, bit n for number n; 0 for a filled cell. */
+    private final long[] candidates;
+
+    /** Cells of each unit: rows first, then columns, then sub-grids. */
+    private final int[][] unitCells;
+
+    /** Row, column and sub-grid unit of each cell. */
+    private final int[][] cellUnits;
+
+    /** Dirty units, in a ring of unit indexes, and the techniques already
+     * tried without success on each of them. */
+    private final int[] queue;
+    private int head, queued;
+    private final boolean[] dirty;
+    private final int[] tried;
+
+    private boolean contradiction;
+
+    /** Cells of each number in the unit examined for hidden pairs. */
+    private final long[] places;
+
+    /**
+     * Create an engine for the given board and attach it to the board.
+     * @param board This is the board whose candidates are kept.
+     */
+    public CandidateEngine(Board board) {
+        this.board = board;
+        this.size = board.size();
+        int cells = size * size, units = 3 * size;
+        candidates = new long[cells];
+        unitCells = new int[units][size];
+        cellUnits = new int[cells][3];
+        int[] filled = new int[units];
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int cell = row * size + col;
+                int[] own = {row, size + col, 2 * size + board.boxIndex(row, col)};
+                for (int k = 0; k < 3; k++) {
+                    unitCells[own[k]][filled[own[k]]++] = cell;
+                }
+                cellUnits[cell] = own;
+            }
+        }
+        queue = new int[units];
+        dirty = new boolean[units];
+        tried = new int[units];
+        places = new long[size + 1];
+        rebuild();
+        board.addListener(this);
+    }
+
+    /** Detach this engine from its board. */
+    public void close() {
+        board.removeListener(this);
+    }
+
+    /**
+     * This returns the candidates of the cell at position row col.
+     * @param row This is the row in the matrix.
+     * @param col This is the column in the matrix.
+     * @return Returns a mask with bit n set if number n is a candidate; 0
+     * for a filled cell.
+     * */
+    public long candidates(int row, int col) {
+        return candidates[row * size + col];
+    }
+
+    /**
+     * This checks if the deductions so far found a cell or a unit that no
+     * number can fill.
+     * @return Returns true if the board has no solution.
+     * */
+    public boolean hasContradiction() {
+        return contradiction;
+    }
+
+    /**
+     * This method finds the next number that can be placed, using the
+     * easiest technique that makes progress anywhere on the board. Candidates
+     * removed along the way stay removed; the board itself is not changed.
+     * @return Returns the hint, or null if the techniques are stuck or the
+     * board has a contradiction.
+     * */
+    public Hint findHint() {
+        Technique hardest = Technique.NAKED_SINGLE;
+        while (!contradiction) {
+            Hint hint = findSingle(hardest);
+            if (hint != null || contradiction) {
+                return hint;
+            }
+            Technique used = eliminate();
+            if (used == null) {
+                return null;
+            }
+            if (used.compareTo(hardest) > 0) {
+                hardest = used;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * This method fills the board with hints until the techniques are stuck.
+     * @return Returns the number of cells filled, or -1 if the board turned
+     * out to have no solution.
+     * */
+    public int propagate() {
+        int placed = 0;
+        for (Hint hint = findHint(); hint != null; hint = findHint()) {
+            board.setElement(hint.row(), hint.col(), hint.number());
+            placed++;
+        }
+        return contradiction ? -1 : placed;
+    }
+
+    @Override
+    public void cellSet(Board b, int row, int col, int oldNum, int num) {
+        if (oldNum != 0) {
+            rebuild();
+            return;
+        }
+        int cell = row * size + col;
+        candidates[cell] = 0;
+        markDirty(cell);
+        long bit = 1L << num;
+        for (int unit : cellUnits[cell]) {
+            for (int peer : unitCells[unit]) {
+                if ((candidates[peer] & bit) != 0) {
+                    candidates[peer] &= ~bit;
+                    markDirty(peer);
+                }
+            }
+        }
+        if (board.hasConstraints()) {
+            // the constraints may forbid the number beyond the units, as rebuild would find
+            for (int other = 0; other < candidates.length; other++) {
+                if (candidates[other] != 0) {
+                    long allowed = candidates[other] & board.candidates(other / size, other % size);
+                    if (allowed != candidates[other]) {
+                        candidates[other] = allowed;
+                        markDirty(other);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void cellCleared(Board b, int row, int col, int oldNum) {
+        rebuild();
+    }
+
+    @Override
+    public void reset(Board b) {
+        rebuild();
+    }
+
+    /**
+     * This method recomputes all candidates from the board, forgetting all
+     * deductions, and marks every unit dirty. It must be called after the
+     * board changes without notifying listeners, as by
+     * {@link Board#copyFrom(Board)}.
+     * */
+    public void rebuild() {
+        for (int cell = 0; cell < candidates.length; cell++) {
+            int row = cell / size, col = cell % size;
+            candidates[cell] = board.getElement(row, col) == 0 ? board.candidates(row, col) : 0;
+        }
+        head = queued = 0;
+        for (int unit = 0; unit < queue.length; unit++) {
+            dirty[unit] = true;
+            tried[unit] = 0;
+            queue[queued++] = unit;
+        }
+        contradiction = false;
+    }
+
+    /**
+     * This method puts the units of a cell on the worklist.
+     * @param cell This is the changed cell.
+     * */
+    private void markDirty(int cell) {
+        for (int unit : cellUnits[cell]) {
+            tried[unit] = 0;
+            if (!dirty[unit]) {
+                dirty[unit] = true;
+                queue[(head + queued++) % queue.length] = unit;
+            }
+        }
+    }
+
+    /**
+     * This method looks for a naked or hidden single in the dirty units not
+     * yet searched for singles.
+     * @param hardest This is the hardest technique used for this hint so far.
+     * @return Returns the single, or null if there is none.
+     * */
+    private Hint findSingle(Technique hardest) {
+        int singles = 1 << Technique.HIDDEN_SINGLE.ordinal();
+        for (int i = 0; i < queued; i++) {
+            int unit = queue[(head + i) % queue.length];
+            if ((tried[unit] & singles) != 0) {
+                continue;
+            }
+            Hint hint = single(unit, hardest);
+            if (hint != null || contradiction) {
+                return hint;
+            }
+            tried[unit] |= singles;
+        }
+        return null;
+    }
+
+    /**
+     * This method applies the easiest elimination technique that removes a
+     * candidate in any dirty unit.
+     * @return Returns the technique used, or null if none removed anything;
+     * the worklist is then empty.
+     * */
+    private Technique eliminate() {
+        for (Technique technique : ELIMINATIONS) {
+            int bit = 1 << technique.ordinal();
+            for (int i = 0; i < queued; i++) {
+                int unit = queue[(head + i) % queue.length];
+                if ((tried[unit] & bit) != 0) {
+                    continue;
+                }
+                tried[unit] |= bit; // cleared again if the unit changes
+                if (apply(technique, unit)) {
+                    compact();
+                    return technique;
+                }
+            }
+        }
+        compact();
+        return null;
+    }
+
+    /** Remove the units on which every technique has failed from the worklist. */
+    private void compact() {
+        int kept = 0;
+        for (int i = 0; i < queued; i++) {
+            int unit = queue[(head + i) % queue.length];
+            if (tried[unit] == ALL_TRIED) {
+                dirty[unit] = false;
+            } else {
+                queue[(head + kept++) % queue.length] = unit;
+            }
+        }
+        queued = kept;
+    }
+
+    /**
+     * This method looks for a naked or hidden single in a unit, and notes a
+     * contradiction if a cell or a number has no place left.
+     * @param unit This is the unit to be examined.
+     * @param hardest This is the hardest technique used for this hint so far.
+     * @return Returns the single, or null if there is none.
+     * */
+    private Hint single(int unit, Technique hardest) {
+        long once = 0, twice = 0, placed = 0;
+        for (int cell : unitCells[unit]) {
+            long c = candidates[cell];
+            int num = board.getElement(cell / size, cell % size);
+            if (num != 0) {
+                placed |= 1L << num;
+            } else if (c == 0) {
+                contradiction = true;
+                return null;
+            } else if (Long.bitCount(c) == 1) {
+                return hint(cell, c, hardest);
+            }
+            twice |= once & c;
+            once |= c;
+        }
+        long all = ((1L << size) - 1) << 1;
+        if ((all & ~once & ~placed) != 0) {
+            contradiction = true;
+            return null;
+        }
+        long hidden = once & ~twice;
+        if (hidden != 0) {
+            long bit = Long.lowestOneBit(hidden);
+            for (int cell : unitCells[unit]) {
+                if ((candidates[cell] & bit) != 0) {
+                    return hint(cell, bit, hardest.compareTo(Technique.HIDDEN_SINGLE) > 0
+                            ? hardest : Technique.HIDDEN_SINGLE);
+                }
+            }
+        }
+        return null;
+    }
+
+    private Hint hint(int cell, long bit, Technique technique) {
+        return new Hint(cell / size, cell % size, Long.numberOfTrailingZeros(bit), technique);
+    }
+
+    /**
+     * This method applies an elimination technique to a unit.
+     * @param technique This is the technique to be applied.
+     * @param unit This is the unit to be examined.
+     * @return Returns true if a candidate was removed.
+     * */
+    private boolean apply(Technique technique, int unit) {
+        switch (technique) {
+            case LOCKED_CANDIDATES:
+                return lockedCandidates(unit);
+            case NAKED_PAIR:
+                return nakedPair(unit);
+            case HIDDEN_PAIR:
+                return hiddenPair(unit);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * This method removes a number from the rest of a line when its
+     * candidates in a sub-grid all lie on that line (pointing), or from the
+     * rest of a sub-grid when its candidates in a line all lie in that
+     * sub-grid (claiming).
+     * @param unit This is the unit to be examined.
+     * @return Returns true if a candidate was removed.
+     * */
+    private boolean lockedCandidates(int unit) {
+        boolean removed = false;
+        for (int num = 1; num <= size; num++) {
+            long bit = 1L << num;
+            int first = -1;
+            boolean sameRow = true, sameCol = true, sameBox = true;
+            for (int cell : unitCells[unit]) {
+                if ((candidates[cell] & bit) == 0) {
+                    continue;
+                }
+                if (first < 0) {
+                    first = cell;
+                }
+                sameRow &= cellUnits[cell][0] == cellUnits[first][0];
+                sameCol &= cellUnits[cell][1] == cellUnits[first][1];
+                sameBox &= cellUnits[cell][2] == cellUnits[first][2];
+            }
+            if (first < 0) {
+                continue;
+            }
+            for (int k = 0; k < 3; k++) {
+                boolean locked = k == 0 ? sameRow : k == 1 ? sameCol : sameBox;
+                int target = cellUnits[first][k];
+                if (locked && target != unit) {
+                    for (int cell : unitCells[target]) {
+                        if (!contains(unit, cell)) {
+                            removed |= remove(cell, bit);
+                        }
+                    }
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * This method removes the numbers of two cells of a unit that have the
+     * same two candidates from the other cells of the unit.
+     * @param unit This is the unit to be examined.
+     * @return Returns true if a candidate was removed.
+     * */
+    private boolean nakedPair(int unit) {
+        int[] cells = unitCells[unit];
+        boolean removed = false;
+        for (int i = 0; i < size; i++) {
+            long pair = candidates[cells[i]];
+            if (Long.bitCount(pair) != 2) {
+                continue;
+            }
+            for (int j = i + 1; j < size; j++) {
+                if (candidates[cells[j]] == pair) {
+                    for (int k = 0; k < size; k++) {
+                        if (k != i && k != j) {
+                            removed |= remove(cells[k], pair);
+                        }
+                    }
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * This method removes the other candidates of two cells that are the
+     * only places of two numbers in a unit.
+     * @param unit This is the unit to be examined.
+     * @return Returns true if a candidate was removed.
+     * */
+    private boolean hiddenPair(int unit) {
+        int[] cells = unitCells[unit];
+        Arrays.fill(places, 0);
+        for (int i = 0; i < size; i++) {
+            long c = candidates[cells[i]];
+            while (c != 0) {
+                int num = Long.numberOfTrailingZeros(c);
+                places[num] |= 1L << i;
+                c &= c - 1;
+            }
+        }
+        boolean removed = false;
+        for (int a = 1; a <= size; a++) {
+            if (Long.bitCount(places[a]) != 2) {
+                continue;
+            }
+            for (int b = a + 1; b <= size; b++) {
+                if (places[b] == places[a]) {
+                    long keep = (1L << a) | (1L << b);
+                    for (long p = places[a]; p != 0; p &= p - 1) {
+                        removed |= remove(cells[Long.numberOfTrailingZeros(p)], ~keep);
+                    }
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * This method removes candidates of a cell as a deduction.
+     * @param cell This is the cell.
+     * @param mask These are the numbers to be removed.
+     * @return Returns true if a candidate was removed.
+     * */
+    private boolean remove(int cell, long mask) {
+        long bits = candidates[cell] & mask;
+        if (bits == 0) {
+            return false;
+        }
+        candidates[cell] &= ~bits;
+        markDirty(cell);
+        return true;
+    }
+
+    private boolean contains(int unit, int cell) {
+        for (int k = 0; k < 3; k++) {
+            if (cellUnits[cell][k] == unit) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,324 @@
+package sudoku.solver;
+
+import sudoku.metrics.Metrics;
+import sudoku.metrics.Probe;
+import sudoku.model.Board;
+
+/**
+ * An exact-cover solver for {@link Board} based on Knuth's Algorithm X with
+ * Dancing Links. The cover matrix depends only on the board geometry, so it
+ * is built once in a preallocated node pool and restored after each solve;
+ * solving another board of the same geometry does no allocation.
+ * A solver instance is not thread-safe.
+ * <p>
+ * Boards with variant constraints are not an exact cover problem; they are
+ * solved by backtracking on a copy of the board instead, choosing the cell
+ * with the fewest {@link Board#candidates(int, int)}, which already
+ * exclude the numbers the constraints forbid.
+ *
+ * @see Board
+ */
+public class DlxSolver {
+
+    /** Geometry of the current cover matrix. */
+    private int size, boxRows, boxCols;
+
+    /** Node pool: links, column header and candidate of each node.
+     * Node 0 is the root and nodes 1..columns are the column headers. */
+    private int[] left, right, up, down, column, candidate;
+
+    /** Number of nodes currently linked into each column. */
+    private int[] count;
+
+    /** First node of each candidate row, indexed by (row * size + col) * size + digit. */
+    private int[] rowStart;
+
+    /** Candidate rows chosen so far, givens first. */
+    private int[] chosen;
+    private int depth;
+
+    /**
+     * This method solves the given board in place. On success every empty
+     * cell is filled; otherwise the board is left unchanged.
+     * @param board This is the puzzle to be solved.
+     * @return Returns whether a solution exists.
+     * */
+    public boolean solve(Board board) {
+        long start = Metrics.start();
+        if (board.hasConstraints()) {
+            Board work = new Board(board);
+            boolean found = !work.hasConflicts() && backtrack(work, 1) == 1;
+            if (found) {
+                for (int row = 0; row < board.size(); row++) {
+                    for (int col = 0; col < board.size(); col++) {
+                        if (board.getElement(row, col) == 0) {
+                            board.setElement(row, col, work.getElement(row, col));
+                        }
+                    }
+                }
+            }
+            Metrics.record(Probe.SOLVE, start);
+            return found;
+        }
+        prepare(board);
+        depth = 0;
+        int givens = coverGivens(board);
+        boolean found = givens >= 0 && search(1) == 1;
+        int total = depth;
+        uncoverGivens(givens < 0 ? -givens - 1 : givens);
+        if (found) {
+            for (int i = 0; i < total; i++) {
+                int cand = chosen[i];
+                int cell = cand / size;
+                if (board.getElement(cell / size, cell % size) == 0) {
+                    board.setElement(cell / size, cell % size, cand % size + 1);
+                }
+            }
+        }
+        Metrics.record(Probe.SOLVE, start);
+        return found;
+    }
+
+    /**
+     * This method counts the solutions of the given board, stopping as soon
+     * as the limit is reached. The board is left unchanged.
+     * @param board This is the puzzle to be checked.
+     * @param limit This is the count at which to stop, e.g. 2 to test uniqueness.
+     * @return Returns the number of solutions, at most limit.
+     * */
+    public int countSolutions(Board board, int limit) {
+        if (board.hasConstraints()) {
+            Board work = new Board(board);
+            return work.hasConflicts() ? 0 : backtrack(work, limit);
+        }
+        prepare(board);
+        depth = 0;
+        int givens = coverGivens(board);
+        int solutions = givens >= 0 ? search(limit) : 0;
+        uncoverGivens(givens < 0 ? -givens - 1 : givens);
+        return solutions;
+    }
+
+    /**
+     * This method counts the completions of a board with variant constraints
+     * by trying each candidate of the empty cell with the fewest. When the
+     * limit is reached the board is left as the last solution found.
+     * @param work This is a copy of the puzzle, with no listeners.
+     * @param limit This is the count at which to stop.
+     * @return Returns the number of solutions, at most limit.
+     * */
+    private static int backtrack(Board work, int limit) {
+        int size = work.size();
+        int bestRow = -1, bestCol = -1, fewest = size + 1;
+        long bestCandidates = 0;
+        for (int row = 0; row < size && fewest > 1; row++) {
+            for (int col = 0; col < size; col++) {
+                if (work.getElement(row, col) == 0) {
+                    long candidates = work.candidates(row, col);
+                    int n = Long.bitCount(candidates);
+                    if (n == 0) {
+                        return 0;
+                    }
+                    if (n < fewest) {
+                        fewest = n;
+                        bestRow = row;
+                        bestCol = col;
+                        bestCandidates = candidates;
+                    }
+                }
+            }
+        }
+        if (bestRow < 0) {
+            return work.isSolved() ? 1 : 0;
+        }
+        int found = 0;
+        for (long bits = bestCandidates; bits != 0; bits &= bits - 1) {
+            work.setElement(bestRow, bestCol, Long.numberOfTrailingZeros(bits));
+            found += backtrack(work, limit - found);
+            if (found >= limit) {
+                return found;
+            }
+        }
+        work.deleteElement(bestRow, bestCol);
+        return found;
+    }
+
+    /**
+     * This method builds the cover matrix unless the board has the geometry
+     * of the previous solve.
+     * @param board This is the board to be solved.
+     * */
+    private void prepare(Board board) {
+        if (board.size() == size && board.boxRows() == boxRows && board.boxCols() == boxCols) {
+            return;
+        }
+        size = board.size();
+        boxRows = board.boxRows();
+        boxCols = board.boxCols();
+        int cells = size * size;
+        int columns = 4 * cells;
+        int nodes = 1 + columns + 4 * cells * size;
+        left = new int[nodes];
+        right = new int[nodes];
+        up = new int[nodes];
+        down = new int[nodes];
+        column = new int[nodes];
+        candidate = new int[nodes];
+        count = new int[columns + 1];
+        rowStart = new int[cells * size];
+        chosen = new int[cells];
+        for (int i = 0; i <= columns; i++) {
+            left[i] = i == 0 ? columns : i - 1;
+            right[i] = i == columns ? 0 : i + 1;
+            up[i] = i;
+            down[i] = i;
+            column[i] = i;
+        }
+        int next = columns + 1;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int box = board.boxIndex(row, col);
+                for (int d = 0; d < size; d++) {
+                    int cand = (row * size + col) * size + d;
+                    rowStart[cand] = next;
+                    int[] cols = {
+                            1 + row * size + col,
+                            1 + cells + row * size + d,
+                            1 + 2 * cells + col * size + d,
+                            1 + 3 * cells + box * size + d };
+                    for (int k = 0; k < 4; k++) {
+                        int node = next + k;
+                        int c = cols[k];
+                        column[node] = c;
+                        candidate[node] = cand;
+                        left[node] = next + (k + 3) % 4;
+                        right[node] = next + (k + 1) % 4;
+                        up[node] = up[c];
+                        down[node] = c;
+                        down[up[c]] = node;
+                        up[c] = node;
+                        count[c]++;
+                    }
+                    next += 4;
+                }
+            }
+        }
+    }
+
+    /**
+     * This method selects the candidate row of every filled cell.
+     * @param board This is the puzzle.
+     * @return Returns the number of givens selected, or -(n + 1) if the
+     * board has a conflicting or out-of-range number after n selections.
+     * */
+    private int coverGivens(Board board) {
+        int selected = 0;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int num = board.getElement(row, col);
+                if (num == 0) {
+                    continue;
+                }
+                if (!board.isValid(row, col)) {
+                    return -selected - 1;
+                }
+                int cand = (row * size + col) * size + num - 1;
+                int node = rowStart[cand];
+                do {
+                    cover(column[node]);
+                    node = right[node];
+                } while (node != rowStart[cand]);
+                chosen[depth++] = cand;
+                selected++;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * This method undoes coverGivens in reverse order.
+     * @param selected This is the number of givens selected.
+     * */
+    private void uncoverGivens(int selected) {
+        for (int i = selected - 1; i >= 0; i--) {
+            int start = rowStart[chosen[i]];
+            int node = left[start];
+            do {
+                uncover(column[node]);
+                node = left[node];
+            } while (node != left[start]);
+        }
+    }
+
+    /**
+     * This method runs Algorithm X on the remaining columns, always
+     * branching on the column with the fewest nodes. The matrix is fully
+     * restored on return; once the limit is reached, the rows of the last
+     * solution found stay in the chosen array.
+     * @param limit This is the number of solutions at which to stop.
+     * @return Returns the number of solutions found, at most limit.
+     * */
+    private int search(int limit) {
+        if (right[0] == 0) {
+            return 1;
+        }
+        int best = right[0];
+        for (int c = right[best]; c != 0; c = right[c]) {
+            if (count[c] < count[best]) {
+                best = c;
+            }
+        }
+        if (count[best] == 0) {
+            return 0;
+        }
+        cover(best);
+        int found = 0;
+        for (int r = down[best]; r != best && found < limit; r = down[r]) {
+            chosen[depth++] = candidate[r];
+            for (int j = right[r]; j != r; j = right[j]) {
+                cover(column[j]);
+            }
+            found += search(limit - found);
+            for (int j = left[r]; j != r; j = left[j]) {
+                uncover(column[j]);
+            }
+            if (found < limit) {
+                depth--;
+            }
+        }
+        uncover(best);
+        return found;
+    }
+
+    /**
+     * This method removes a column and every row intersecting it.
+     * @param c This is the column header.
+     * */
+    private void cover(int c) {
+        right[left[c]] = right[c];
+        left[right[c]] = left[c];
+        for (int i = down[c]; i != c; i = down[i]) {
+            for (int j = right[i]; j != i; j = right[j]) {
+                down[up[j]] = down[j];
+                up[down[j]] = up[j];
+                count[column[j]]--;
+            }
+        }
+    }
+
+    /**
+     * This method reinserts a column removed by cover.
+     * @param c This is the column header.
+     * */
+    private void uncover(int c) {
+        for (int i = up[c]; i != c; i = up[i]) {
+            for (int j = left[i]; j != i; j = left[j]) {
+                count[column[j]]++;
+                down[up[j]] = j;
+                up[down[j]] = j;
+            }
+        }
+        right[left[c]] = c;
+        left[right[c]] = c;
+    }
+}
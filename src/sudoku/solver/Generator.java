@@ -0,0 +1,165 @@
+package sudoku.solver;
+
+import java.util.Random;
+import sudoku.metrics.Metrics;
+import sudoku.metrics.Probe;
+import sudoku.model.Board;
+
+/**
+ * Generates puzzles with a unique solution. A random solution grid is
+ * built by filling the sub-grids on the diagonal with random permutations
+ * and solving the rest; clues are then removed in random order as long as
+ * the solution stays unique, that is as long as the board has no solution
+ * with another number in the emptied cell. On large boards a check that
+ * takes too long keeps its clue, so generation time stays bounded at the
+ * cost of a few extra clues. A generator is not thread-safe.
+ *
+ * @see DlxSolver
+ * @see SolutionCounter
+ */
+public class Generator {
+
+    /** Target share of the cells left as clues. */
+    public enum Difficulty {
+        EASY(0.50), MEDIUM(0.40), HARD(0.33), MINIMAL(0);
+
+        private final double clues;
+
+        Difficulty(double clues) {
+            this.clues = clues;
+        }
+
+        /** Return the number of clues to aim for on a board of the given size.
+         * @param size This is the size of the board.
+         * @return Returns the clue count. */
+        public int clues(int size) {
+            return (int) Math.round(clues * size * size);
+        }
+    }
+
+    private final Random random;
+    private final DlxSolver solver = new DlxSolver();
+    private final SolutionCounter counter = new SolutionCounter();
+
+    /** Search nodes allowed per uniqueness check, times the number of
+     * cells; larger boards cost more per node and get fewer nodes. */
+    private static final long CHECK_WORK = 200_000;
+
+    /** Create a generator with a random seed. */
+    public Generator() {
+        this(new Random());
+    }
+
+    /** Create a generator drawing from the given random source.
+     * @param random This is the source of randomness. */
+    public Generator(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * This method generates a puzzle of the given difficulty.
+     * @param size This is the size of the board.
+     * @param difficulty This is the difficulty to aim for.
+     * @return Returns a puzzle whose clues are marked as givens.
+     * */
+    public Board generate(int size, Difficulty difficulty) {
+        return generate(size, difficulty.clues(size));
+    }
+
+    /**
+     * This method generates a puzzle of the given difficulty with sub-grids
+     * of the given shape, such as 2x3 or 3x2 for a 6x6 board.
+     * @param boxRows This is the height of a sub-grid.
+     * @param boxCols This is the width of a sub-grid.
+     * @param difficulty This is the difficulty to aim for.
+     * @return Returns a puzzle whose clues are marked as givens.
+     * */
+    public Board generate(int boxRows, int boxCols, Difficulty difficulty) {
+        long start = Metrics.start();
+        int size = boxRows * boxCols;
+        Board puzzle = removeClues(solution(new Board(size, boxRows, boxCols)), difficulty.clues(size));
+        Metrics.record(Probe.GENERATE, start);
+        return puzzle;
+    }
+
+    /**
+     * This method generates a puzzle with at most the given number of clues,
+     * or a minimal puzzle if no unique puzzle with that few clues is found.
+     * @param size This is the size of the board.
+     * @param clues This is the number of clues to aim for.
+     * @return Returns a puzzle whose clues are marked as givens.
+     * */
+    public Board generate(int size, int clues) {
+        long start = Metrics.start();
+        Board puzzle = removeClues(solution(new Board(size)), clues);
+        Metrics.record(Probe.GENERATE, start);
+        return puzzle;
+    }
+
+    /**
+     * This method removes clues from a solved board in random order as long
+     * as the solution stays unique.
+     * @param board This is the solved board.
+     * @param clues This is the number of clues to aim for.
+     * @return Returns the board, with its clues marked as givens.
+     * */
+    private Board removeClues(Board board, int clues) {
+        int size = board.size();
+        int cells = size * size;
+        counter.setBudget(Math.max(100, CHECK_WORK / cells));
+        int[] order = new int[cells];
+        for (int i = 0; i < cells; i++) {
+            order[i] = i;
+        }
+        shuffle(order);
+        int left = cells;
+        for (int i = 0; i < cells && left > clues; i++) {
+            int row = order[i] / size, col = order[i] % size;
+            int num = board.getElement(row, col);
+            board.deleteElement(row, col);
+            if (!counter.hasSolutionWithout(board, row, col, num)) {
+                left--;
+            } else {
+                board.setElement(row, col, num);
+            }
+        }
+        board.fixGivens();
+        return board;
+    }
+
+    /**
+     * This method builds a random complete grid.
+     * @param board This is an empty board of the wanted shape.
+     * @return Returns the board, solved.
+     * */
+    private Board solution(Board board) {
+        int size = board.size();
+        int[] digits = new int[size];
+        while (true) {
+            board.reset();
+            int bands = size / board.boxRows(), stacks = size / board.boxCols();
+            for (int b = 0; b < Math.min(bands, stacks); b++) {
+                for (int i = 0; i < size; i++) {
+                    digits[i] = i + 1;
+                }
+                shuffle(digits);
+                for (int i = 0; i < size; i++) {
+                    board.setElement(b * board.boxRows() + i / board.boxCols(),
+                            b * board.boxCols() + i % board.boxCols(), digits[i]);
+                }
+            }
+            if (solver.solve(board)) {
+                return board;
+            }
+        }
+    }
+
+    private void shuffle(int[] values) {
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = values[i];
+            values[i] = values[j];
+            values[j] = t;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package sudoku.solver;
+
+/**
+ * A number that can be placed by human techniques, with the hardest
+ * technique needed to find it.
+ *
+ * @see CandidateEngine#findHint()
+ */
+public final class Hint {
+
+    private final int row, col, number;
+    private final Technique technique;
+
+    Hint(int row, int col, int number, Technique technique) {
+        this.row = row;
+        this.col = col;
+        this.number = number;
+        this.technique = technique;
+    }
+
+    /** Return the row of the cell to be filled.
+     * @return Returns the 0-based row. */
+    public int row() {
+        return row;
+    }
+
+    /** Return the column of the cell to be filled.
+     * @return Returns the 0-based column. */
+    public int col() {
+        return col;
+    }
+
+    /** Return the number to be placed.
+     * @return Returns the number. */
+    public int number() {
+        return number;
+    }
+
+    /** Return the hardest technique needed for this hint.
+     * @return Returns the technique. */
+    public Technique technique() {
+        return technique;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d at row %d, column %d (%s)", number, row + 1, col + 1, technique);
+    }
+}
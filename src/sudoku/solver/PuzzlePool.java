@@ -0,0 +1,118 @@
+package sudoku.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import sudoku.model.Board;
+
+/**
+ * A bounded pool of ready puzzles per board size, kept full by generators
+ * running on background threads. Taking a puzzle never waits for
+ * generation unless the pool of that size has run dry.
+ *
+ * @see Generator
+ */
+public class PuzzlePool {
+
+    /** Number of ready puzzles kept per size. */
+    private final int capacity;
+
+    /** Difficulty of the generated puzzles. */
+    private final Generator.Difficulty difficulty;
+
+    /** Ready puzzles and the generations in flight per size. */
+    private final Map<Integer, Queue<Board>> ready = new ConcurrentHashMap<>();
+    private final Map<Integer, AtomicInteger> pending = new ConcurrentHashMap<>();
+
+    /** Generator of each background thread. */
+    private final ThreadLocal<Generator> generators = ThreadLocal.withInitial(Generator::new);
+
+    private final ExecutorService executor;
+
+    /**
+     * Create a pool keeping the given number of puzzles per size.
+     * @param capacity This is the number of puzzles kept ready per size.
+     * @param difficulty This is the difficulty of the generated puzzles.
+     */
+    public PuzzlePool(int capacity, Generator.Difficulty difficulty) {
+        this.capacity = capacity;
+        this.difficulty = difficulty;
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "puzzle-generator");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * This method starts filling the pool for the given sizes.
+     * @param sizes These are the board sizes to be generated.
+     * @return Returns a future completed once the generations started by
+     * this call are done.
+     * */
+    public CompletableFuture<Void> prefill(int... sizes) {
+        CompletableFuture<?>[] filled = new CompletableFuture<?>[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            filled[i] = refill(sizes[i]);
+        }
+        return CompletableFuture.allOf(filled);
+    }
+
+    /**
+     * This method takes a puzzle of the given size. The returned future is
+     * already complete unless the pool of that size is empty, in which case
+     * it completes on a background thread once a puzzle is generated.
+     * Either way the pool is topped up in the background.
+     * @param size This is the size of the board.
+     * @return Returns the future puzzle.
+     * */
+    public CompletableFuture<Board> take(int size) {
+        Board board = queue(size).poll();
+        CompletableFuture<Board> puzzle = board != null
+                ? CompletableFuture.completedFuture(board)
+                : CompletableFuture.supplyAsync(() -> generators.get().generate(size, difficulty), executor);
+        refill(size);
+        return puzzle;
+    }
+
+    /** Stop the background generators. */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * This method submits generations until the ready and in-flight puzzles
+     * of a size reach the capacity.
+     * @param size This is the size of the board.
+     * @return Returns a future completed once the submitted generations are done.
+     * */
+    private CompletableFuture<Void> refill(int size) {
+        Queue<Board> queue = queue(size);
+        AtomicInteger inFlight = pending.computeIfAbsent(size, s -> new AtomicInteger());
+        List<CompletableFuture<Void>> submitted = new ArrayList<>();
+        while (queue.size() + inFlight.get() < capacity) {
+            inFlight.incrementAndGet();
+            submitted.add(CompletableFuture.runAsync(() -> {
+                try {
+                    queue.add(generators.get().generate(size, difficulty));
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            }, executor));
+        }
+        return CompletableFuture.allOf(submitted.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private Queue<Board> queue(int size) {
+        return ready.computeIfAbsent(size, s -> new ConcurrentLinkedQueue<>());
+    }
+}
@@ -0,0 +1,104 @@
+package sudoku.solver;
+
+import sudoku.metrics.Metrics;
+import sudoku.metrics.Probe;
+import sudoku.model.Board;
+
+/**
+ * Rates the difficulty of puzzles by solving them with human techniques
+ * only, always taking the easiest one that makes progress. A puzzle is
+ * rated by the hardest technique it needs, in the manner of the Sudoku
+ * Explainer rating, and the number of times each technique was used is
+ * kept to tell apart puzzles of the same rating.
+ * <p>
+ * A rater reuses one working board and candidate engine for every puzzle
+ * of a shape and set of constraints, so rating allocates little besides
+ * the result. A rater is
+ * not thread-safe; {@link BatchSolver#rateAll(java.util.List)} gives each
+ * worker thread its own.
+ *
+ * @see CandidateEngine
+ */
+public class Rater {
+
+    /** Working copy of the puzzle being rated and its pencil marks. */
+    private Board work;
+    private CandidateEngine engine;
+
+    /**
+     * This method rates a puzzle. The puzzle itself is not changed.
+     * @param puzzle This is the puzzle to be rated.
+     * @return Returns the rating.
+     * */
+    public Rating rate(Board puzzle) {
+        long start = Metrics.start();
+        if (work == null || !work.hasSameRules(puzzle)) {
+            if (engine != null) {
+                engine.close();
+            }
+            work = new Board(puzzle);
+            engine = new CandidateEngine(work);
+        } else {
+            work.copyFrom(puzzle);
+        }
+        engine.rebuild();
+        int[] uses = new int[Technique.values().length];
+        Technique hardest = null;
+        for (Hint hint = engine.findHint(); hint != null; hint = engine.findHint()) {
+            uses[hint.technique().ordinal()]++;
+            if (hardest == null || hint.technique().compareTo(hardest) > 0) {
+                hardest = hint.technique();
+            }
+            work.setElement(hint.row(), hint.col(), hint.number());
+        }
+        Metrics.record(Probe.RATE, start);
+        return new Rating(work.isSolved(), hardest, uses);
+    }
+
+    /** Difficulty of a puzzle. */
+    public static class Rating {
+        private final boolean solved;
+        private final Technique hardest;
+        private final int[] uses;
+
+        Rating(boolean solved, Technique hardest, int[] uses) {
+            this.solved = solved;
+            this.hardest = hardest;
+            this.uses = uses;
+        }
+
+        /** Return if the techniques solved the whole puzzle.
+         * @return Returns false if they got stuck or found a contradiction. */
+        public boolean isSolved() {
+            return solved;
+        }
+
+        /** Return the hardest technique used.
+         * @return Returns the technique, or null if no cell was filled. */
+        public Technique hardest() {
+            return hardest;
+        }
+
+        /** Return the number of placements a technique was needed for.
+         * @param technique This is the technique.
+         * @return Returns the number of hints it was the hardest technique of. */
+        public int uses(Technique technique) {
+            return uses[technique.ordinal()];
+        }
+
+        /** Return the rating of the puzzle.
+         * @return Returns the rating of the hardest technique, 0 if no cell
+         * was filled, or NaN if the puzzle was not solved. */
+        public double score() {
+            return !solved ? Double.NaN : hardest == null ? 0 : hardest.rating();
+        }
+
+        @Override
+        public String toString() {
+            if (!solved) {
+                return "unrated";
+            }
+            return hardest == null ? "0.0" : String.format("%.1f (%s)", score(), hardest);
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package sudoku.solver;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import sudoku.model.Board;
+
+/**
+ * Counts the solutions of a board up to a cap, for uniqueness checks. The
+ * search keeps one bitmask of used numbers per row, column and sub-grid,
+ * fills naked and hidden singles before every branch, branches on the
+ * empty cell with the fewest candidates, and stops as soon as the cap is
+ * reached. Counting with a cap of 2 answers whether a puzzle is unique.
+ * <p>
+ * All search state lives in arrays sized once per board size, with a
+ * trail of placed cells for undoing, so a count allocates nothing. A
+ * board with variant constraints is also followed on a copy of it, which
+ * narrows the candidates of every cell to the numbers its constraints
+ * allow and checks every complete grid, so such counts are slower but
+ * honor the constraints. A counter is not thread-safe; {@link #countParallel(Board, int, int)} gives
+ * each subtask its own copy.
+ *
+ * @see Generator
+ */
+public class SolutionCounter {
+
+    private int size, boxRows;
+    private long full;
+
+    /** Number in each cell, 0 if empty. */
+    private int[] cells;
+
+    /** Row, column and sub-grid of each cell, and the cells of each unit
+     * (rows first, then columns, then sub-grids). */
+    private int[] rowOf, colOf, boxOf;
+    private int[][] unitCells;
+
+    /** Numbers used in each row, column and sub-grid. */
+    private long[] rowUsed, colUsed, boxUsed;
+
+    /** Candidates of each empty cell as of the last scan; numbers may have
+     * been used up since. */
+    private long[] scanned;
+
+    /** Empty cells, and the position of each cell in that list. */
+    private int[] empty, position;
+    private int emptyCount;
+
+    /** Cell that must not hold a given number, or -1 if there is none. */
+    private int bannedCell = -1;
+    private long bannedBit;
+
+    /** Copy of a board with variant constraints that the search fills
+     * along, or null for a classic board. */
+    private Board work;
+
+    /** Cells filled by the search, in order, for undoing. */
+    private int[] trail;
+    private int trailSize;
+
+    /** Search nodes a count may visit, and those left in the current count. */
+    private long budget = Long.MAX_VALUE;
+    private long nodesLeft;
+
+    /**
+     * This method limits the work of each count. A count that runs out of
+     * search nodes answers as if the cap had been reached, so a uniqueness
+     * check that gives up errs on the side of "not unique".
+     * @param nodes This is the number of search nodes allowed per count.
+     * */
+    public void setBudget(long nodes) {
+        budget = nodes;
+    }
+
+    /**
+     * This method counts the solutions of a board, stopping at the cap.
+     * @param board This is the board; it is not changed.
+     * @param limit This is the cap on the count.
+     * @return Returns the number of solutions, at most limit; 0 if the
+     * board already has conflicts; limit if the budget ran out.
+     * */
+    public int count(Board board, int limit) {
+        bannedCell = -1;
+        nodesLeft = budget;
+        return load(board) ? search(limit) : 0;
+    }
+
+    /**
+     * This checks if a board has a solution in which the given empty cell
+     * holds a number other than the given one. When the board is known to
+     * be solvable with num in that cell, this answers whether the solution
+     * is unique, and is faster than counting to 2.
+     * @param board This is the board; it is not changed.
+     * @param row This is the row of the cell.
+     * @param col This is the column of the cell.
+     * @param num This is the number the cell must not hold.
+     * @return Returns true if such a solution exists or the budget ran out.
+     * */
+    public boolean hasSolutionWithout(Board board, int row, int col, int num) {
+        nodesLeft = budget;
+        bannedCell = row * board.size() + col;
+        bannedBit = 1L << num;
+        boolean found = load(board) && search(1) > 0;
+        bannedCell = -1;
+        return found;
+    }
+
+    /**
+     * This method counts the solutions of a board, stopping at the cap,
+     * by splitting the search tree into subtasks on the common pool.
+     * @param board This is the board; it is not changed.
+     * @param limit This is the cap on the count.
+     * @param depth This is the number of levels of the search tree to split.
+     * @return Returns the number of solutions, at most limit.
+     * */
+    public int countParallel(Board board, int limit, int depth) {
+        bannedCell = -1;
+        if (!load(board)) {
+            return 0;
+        }
+        AtomicInteger found = new AtomicInteger();
+        ForkJoinPool.commonPool().invoke(new CountTask(copy(), limit, depth, found));
+        return Math.min(found.get(), limit);
+    }
+
+    /**
+     * This method loads a board into the search state, preparing the
+     * tables first if the size or geometry changed.
+     * @param board This is the board to be loaded.
+     * @return Returns false if the board has conflicts.
+     * */
+    private boolean load(Board board) {
+        if (board.size() != size || board.boxRows() != boxRows) {
+            prepare(board);
+        }
+        if (!board.hasConstraints()) {
+            work = null;
+        } else if (work != null && work.hasSameRules(board)) {
+            work.copyFrom(board);
+        } else {
+            work = new Board(board);
+        }
+        for (int i = 0; i < size; i++) {
+            rowUsed[i] = colUsed[i] = boxUsed[i] = 0;
+        }
+        emptyCount = 0;
+        trailSize = 0;
+        boolean valid = true;
+        for (int cell = 0; cell < size * size; cell++) {
+            int num = board.getElement(cell / size, cell % size);
+            cells[cell] = 0;
+            if (num == 0) {
+                position[cell] = emptyCount;
+                empty[emptyCount++] = cell;
+            } else if (num < 1 || num > size || (used(cell) & 1L << num) != 0) {
+                valid = false;
+            } else {
+                cells[cell] = num;
+                mark(cell, 1L << num);
+            }
+        }
+        return valid && (work == null || !work.hasConflicts());
+    }
+
+    /**
+     * This method builds the lookup tables for the size and geometry of a
+     * board.
+     * @param board This is a board of the new geometry.
+     * */
+    private void prepare(Board board) {
+        size = board.size();
+        boxRows = board.boxRows();
+        int n = size * size;
+        full = ((1L << size) - 1) << 1;
+        cells = new int[n];
+        scanned = new long[n];
+        rowOf = new int[n];
+        colOf = new int[n];
+        boxOf = new int[n];
+        unitCells = new int[3 * size][size];
+        int[] filled = new int[3 * size];
+        for (int cell = 0; cell < n; cell++) {
+            rowOf[cell] = cell / size;
+            colOf[cell] = cell % size;
+            boxOf[cell] = board.boxIndex(cell / size, cell % size);
+            for (int unit : new int[] {rowOf[cell], size + colOf[cell], 2 * size + boxOf[cell]}) {
+                unitCells[unit][filled[unit]++] = cell;
+            }
+        }
+        rowUsed = new long[size];
+        colUsed = new long[size];
+        boxUsed = new long[size];
+        empty = new int[n];
+        position = new int[n];
+        trail = new int[n];
+    }
+
+    /**
+     * This method counts the solutions below the current state.
+     * @param limit This is the number of solutions still wanted.
+     * @return Returns the number found, at most limit.
+     * */
+    private int search(int limit) {
+        if (--nodesLeft < 0) {
+            return limit;
+        }
+        int mark = trailSize;
+        int branch = propagate();
+        int total;
+        if (branch == -1) {
+            total = 0;
+        } else if (branch == -2) {
+            total = solved() ? 1 : 0;
+        } else {
+            total = 0;
+            long candidates = candidates(branch);
+            while (candidates != 0 && total < limit) {
+                long bit = Long.lowestOneBit(candidates);
+                candidates ^= bit;
+                place(branch, bit);
+                total += search(limit - total);
+                undo(trailSize - 1);
+            }
+        }
+        undo(mark);
+        return total;
+    }
+
+    /**
+     * This method fills naked and hidden singles until none are left.
+     * @return Returns the empty cell with the fewest candidates, -1 if a
+     * cell or a number has no place left, or -2 if the board is full.
+     * */
+    private int propagate() {
+        while (true) {
+            int best = -2, bestCount = Integer.MAX_VALUE;
+            boolean placed = false;
+            for (int i = emptyCount - 1; i >= 0; i--) {
+                int cell = empty[i];
+                long candidates = candidates(cell);
+                scanned[cell] = candidates;
+                int count = Long.bitCount(candidates);
+                if (count == 0) {
+                    return -1;
+                }
+                if (count == 1) {
+                    place(cell, candidates); // moves only cells at or after i
+                    placed = true;
+                } else if (count < bestCount) {
+                    best = cell;
+                    bestCount = count;
+                }
+            }
+            if (placed) {
+                continue;
+            }
+            if (best == -2) {
+                return best;
+            }
+            int hidden = hiddenSingles();
+            if (hidden < 0) {
+                return -1;
+            }
+            if (hidden == 0) {
+                return best;
+            }
+        }
+    }
+
+    /**
+     * This method fills the numbers that have a single place left in a unit.
+     * @return Returns the number of cells filled, or -1 if a number has no
+     * place left in a unit.
+     * */
+    private int hiddenSingles() {
+        int placed = 0;
+        for (int[] unit : unitCells) {
+            long once = 0, twice = 0, used = 0;
+            for (int cell : unit) {
+                if (cells[cell] != 0) {
+                    used |= 1L << cells[cell];
+                } else {
+                    long candidates = scanned[cell];
+                    twice |= once & candidates;
+                    once |= candidates;
+                }
+            }
+            if ((full & ~once & ~used) != 0) {
+                return -1;
+            }
+            long hidden = once & ~twice;
+            for (int cell : unit) {
+                if (hidden == 0) {
+                    break;
+                }
+                if (cells[cell] == 0) {
+                    long bit = hidden & candidates(cell);
+                    if (bit != 0) {
+                        if (Long.bitCount(bit) > 1) {
+                            return -1; // one cell would need two numbers
+                        }
+                        place(cell, bit);
+                        hidden ^= bit;
+                        placed++;
+                    }
+                }
+            }
+        }
+        return placed;
+    }
+
+    private long candidates(int cell) {
+        long candidates = full & ~used(cell);
+        if (work != null) {
+            candidates &= work.candidates(rowOf[cell], colOf[cell]);
+        }
+        return cell == bannedCell ? candidates & ~bannedBit : candidates;
+    }
+
+    /** Return if the full grid also satisfies the variant constraints. */
+    private boolean solved() {
+        return work == null || work.isSolved();
+    }
+
+    private long used(int cell) {
+        return rowUsed[rowOf[cell]] | colUsed[colOf[cell]] | boxUsed[boxOf[cell]];
+    }
+
+    private void mark(int cell, long bit) {
+        rowUsed[rowOf[cell]] ^= bit;
+        colUsed[colOf[cell]] ^= bit;
+        boxUsed[boxOf[cell]] ^= bit;
+    }
+
+    /**
+     * This method fills an empty cell and records it on the trail.
+     * @param cell This is the cell.
+     * @param bit This is the number as a single bit.
+     * */
+    private void place(int cell, long bit) {
+        cells[cell] = Long.numberOfTrailingZeros(bit);
+        mark(cell, bit);
+        if (work != null) {
+            work.setElement(rowOf[cell], colOf[cell], cells[cell]);
+        }
+        int last = empty[--emptyCount];
+        int at = position[cell];
+        empty[at] = last;
+        position[last] = at;
+        empty[emptyCount] = cell;
+        position[cell] = emptyCount;
+        trail[trailSize++] = cell;
+    }
+
+    /**
+     * This method empties the cells filled since the trail had the given size.
+     * @param mark This is the trail size to go back to.
+     * */
+    private void undo(int mark) {
+        while (trailSize > mark) {
+            int cell = trail[--trailSize];
+            mark(cell, 1L << cells[cell]);
+            cells[cell] = 0;
+            if (work != null) {
+                work.deleteElement(rowOf[cell], colOf[cell]);
+            }
+            position[cell] = emptyCount;
+            empty[emptyCount++] = cell;
+        }
+    }
+
+    /**
+     * This method creates a counter with the same tables and a copy of the
+     * current search state.
+     * @return Returns the copy.
+     * */
+    private SolutionCounter copy() {
+        SolutionCounter copy = new SolutionCounter();
+        copy.size = size;
+        copy.boxRows = boxRows;
+        copy.bannedCell = bannedCell;
+        copy.bannedBit = bannedBit;
+        copy.budget = copy.nodesLeft = budget; // each subtask has the whole budget
+        copy.full = full;
+        copy.rowOf = rowOf;
+        copy.colOf = colOf;
+        copy.boxOf = boxOf;
+        copy.unitCells = unitCells;
+        copy.cells = cells.clone();
+        copy.work = work == null ? null : new Board(work);
+        copy.scanned = new long[scanned.length];
+        copy.rowUsed = rowUsed.clone();
+        copy.colUsed = colUsed.clone();
+        copy.boxUsed = boxUsed.clone();
+        copy.empty = empty.clone();
+        copy.position = position.clone();
+        copy.emptyCount = emptyCount;
+        copy.trail = new int[trail.length];
+        return copy;
+    }
+
+    /** Task counting the solutions of one branch of the search tree. */
+    @SuppressWarnings("serial")
+    private static class CountTask extends RecursiveAction {
+        private final SolutionCounter counter;
+        private final int limit, depth;
+        private final AtomicInteger found;
+
+        CountTask(SolutionCounter counter, int limit, int depth, AtomicInteger found) {
+            this.counter = counter;
+            this.limit = limit;
+            this.depth = depth;
+            this.found = found;
+        }
+
+        @Override
+        protected void compute() {
+            if (found.get() >= limit) {
+                return;
+            }
+            int branch = counter.propagate();
+            if (branch == -2) {
+                if (counter.solved()) {
+                    found.incrementAndGet();
+                }
+            } else if (branch >= 0 && depth == 0) {
+                found.addAndGet(counter.search(limit - found.get()));
+            } else if (branch >= 0) {
+                long candidates = counter.candidates(branch);
+                CountTask[] tasks = new CountTask[Long.bitCount(candidates)];
+                for (int i = 0; i < tasks.length; i++) {
+                    long bit = Long.lowestOneBit(candidates);
+                    candidates ^= bit;
+                    SolutionCounter child = counter.copy();
+                    child.place(branch, bit);
+                    tasks[i] = new CountTask(child, limit, depth - 1, found);
+                }
+                invokeAll(tasks);
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package sudoku.solver;
+
+/**
+ * Human solving techniques known to {@link CandidateEngine}, from the
+ * easiest to the hardest. Each has a difficulty rating on the scale of the
+ * Sudoku Explainer ratings, used by {@link Rater}.
+ */
+public enum Technique {
+    NAKED_SINGLE("naked single", 1.2),
+    HIDDEN_SINGLE("hidden single", 1.5),
+    LOCKED_CANDIDATES("locked candidates", 2.6),
+    NAKED_PAIR("naked pair", 3.0),
+    HIDDEN_PAIR("hidden pair", 3.4);
+
+    private final String label;
+    private final double rating;
+
+    Technique(String label, double rating) {
+        this.label = label;
+        this.rating = rating;
+    }
+
+    /** Return the difficulty of this technique.
+     * @return Returns the rating, higher for harder techniques. */
+    public double rating() {
+        return rating;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,91 @@
+package sudoku.sound;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Clip;
+import sudoku.metrics.Metrics;
+import sudoku.metrics.Probe;
+
+/**
+ * Plays the feedback sounds of the game. Every sound is decoded once into
+ * a {@link Clip} by {@link #load()}, which opens the audio system and is
+ * best called in the background at startup, and clips are started from a
+ * dedicated thread so that the caller never waits for the audio device.
+ * Until the sounds are loaded, or if no audio device is available,
+ * playing is silently skipped.
+ */
+public class SoundEngine {
+
+    /** The sounds of the game and their resource files. */
+    public enum Sound {
+        ERROR("error.wav"), NEW("new.wav"), WIN("win.wav");
+
+        private final String file;
+
+        Sound(String file) {
+            this.file = file;
+        }
+    }
+
+    private static final String SOUND_DIR = "/sound/";
+
+    /** Decoded clips; a sound that failed or is yet to load has no entry.
+     * The map is replaced, never changed, once loaded. */
+    private volatile Map<Sound, Clip> clips = new EnumMap<>(Sound.class);
+
+    private final ExecutorService player = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "sound-player");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Decode all sounds; sounds played before this returns are skipped. */
+    public void load() {
+        Map<Sound, Clip> clips = new EnumMap<>(Sound.class);
+        for (Sound sound : Sound.values()) {
+            try (InputStream in = getClass().getResourceAsStream(SOUND_DIR + sound.file);
+                 AudioInputStream audio = AudioSystem.getAudioInputStream(new BufferedInputStream(in))) {
+                Clip clip = AudioSystem.getClip();
+                clip.open(audio);
+                clips.put(sound, clip);
+            }
+            catch (Exception ex) {
+                System.out.println("Error with loading sound " + sound.file + ": " + ex);
+            }
+        }
+        this.clips = clips;
+    }
+
+    /**
+     * This method starts playing a sound from the beginning, cutting off
+     * the sound if it is still playing.
+     * @param sound This is the sound to be played.
+     * */
+    public void play(Sound sound) {
+        Clip clip = clips.get(sound);
+        if (clip == null) {
+            return;
+        }
+        long requested = Metrics.start();
+        player.execute(() -> {
+            clip.stop();
+            clip.setFramePosition(0);
+            clip.start();
+            Metrics.record(Probe.AUDIO_START, requested);
+        });
+    }
+
+    /** Release the clips and stop the player thread. */
+    public void close() {
+        player.shutdownNow();
+        for (Clip clip : clips.values()) {
+            clip.close();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package sudoku.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import sudoku.model.Board;
+import sudoku.model.MoveJournal;
+
+/**
+ * Checks that a game saved by {@link GameStore} reads back with the same
+ * givens, entries, playing time and journal, and that damaged files are
+ * rejected.
+ */
+public class GameStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip() throws IOException {
+        int[][] shapes = {{4, 2}, {6, 2}, {9, 3}, {12, 3}};
+        for (int[] shape : shapes) {
+            Random random = new Random(shape[0]);
+            Board board = new Board(shape[0], shape[1], shape[0] / shape[1]);
+            play(board, random, board.size());
+            board.fixGivens();
+            MoveJournal journal = new MoveJournal(board);
+            play(board, random, 200);
+            for (int i = 0; i < 30; i++) {
+                journal.undo();
+            }
+            Path path = folder.getRoot().toPath().resolve("game" + shape[0] + ".sav");
+            GameStore.write(path, GameStore.encode(board, journal, 123456789L));
+            GameStore.SavedGame saved = GameStore.read(path);
+            Board restored = saved.board();
+            assertEquals(123456789L, saved.elapsedMillis());
+            assertSame(board, restored);
+            assertEquals(board.hasConflicts(), restored.hasConflicts());
+
+            MoveJournal restoredJournal = new MoveJournal(restored);
+            saved.restoreJournal(restoredJournal);
+            assertEquals(journal.end() - journal.first(), restoredJournal.end() - restoredJournal.first());
+            assertEquals(journal.position() - journal.first(), restoredJournal.position() - restoredJournal.first());
+            while (journal.redo()) {
+                assertTrue(restoredJournal.redo());
+                assertSame(board, restored);
+            }
+            while (journal.undo()) {
+                assertTrue(restoredJournal.undo());
+                assertSame(board, restored);
+            }
+            assertTrue(!restoredJournal.canUndo());
+        }
+    }
+
+    @Test
+    public void rejectsDamagedFiles() throws IOException {
+        Board board = new Board(9);
+        play(board, new Random(9), 40);
+        ByteBuffer game = GameStore.encode(board, null, 0);
+        byte[] bytes = new byte[game.remaining()];
+        game.get(bytes);
+        Path path = folder.getRoot().toPath().resolve("damaged.sav");
+
+        Files.write(path, new byte[] {1, 2, 3, 4, 5, 6});
+        assertRejected(path);
+        byte[] truncated = new byte[bytes.length - 12];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        Files.write(path, truncated);
+        assertRejected(path);
+        byte[] badSize = bytes.clone();
+        badSize[6] = 0;
+        Files.write(path, badSize);
+        assertRejected(path);
+    }
+
+    /** Store random numbers, 0 included, into random cells. */
+    private static void play(Board board, Random random, int moves) {
+        int size = board.size();
+        for (int i = 0; i < moves; i++) {
+            int row = random.nextInt(size), col = random.nextInt(size);
+            if (!board.isGiven(row, col)) {
+                board.setElement(row, col, random.nextInt(size + 1));
+            }
+        }
+    }
+
+    /** Check that two boards have the same shape, numbers and givens. */
+    static void assertSame(Board expected, Board actual) {
+        int size = expected.size();
+        assertEquals(size, actual.size());
+        assertEquals(expected.boxRows(), actual.boxRows());
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                String at = "cell " + row + "," + col;
+                assertEquals(at, expected.getElement(row, col), actual.getElement(row, col));
+                assertEquals(at, expected.isGiven(row, col), actual.isGiven(row, col));
+            }
+        }
+        assertEquals(expected.hash(), actual.hash());
+    }
+
+    private static void assertRejected(Path path) {
+        try {
+            GameStore.read(path);
+            fail("Read a damaged game");
+        } catch (IOException expected) {
+            // damaged files must fail with an IOException, nothing else
+        }
+    }
+}
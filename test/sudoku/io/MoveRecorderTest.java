@@ -0,0 +1,139 @@
+package sudoku.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import sudoku.model.Board;
+import sudoku.model.MoveJournal;
+
+/**
+ * Checks that {@link MoveReplayer} rebuilds the board of a game recorded
+ * by {@link MoveRecorder}, including a resumed game with undone moves,
+ * and that the record packing keeps every field.
+ */
+public class MoveRecorderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recordPacking() {
+        for (MoveRecorder.Kind kind : MoveRecorder.Kind.values()) {
+            long record = MoveRecorder.encode(987654321L, kind, 61, 7, 62);
+            assertEquals(kind, MoveRecorder.kind(record));
+            assertEquals(987654321L, MoveRecorder.micros(record));
+            assertEquals(61, MoveRecorder.row(record));
+            assertEquals(7, MoveRecorder.col(record));
+            assertEquals(62, MoveRecorder.num(record));
+        }
+    }
+
+    @Test
+    public void replayRebuildsTheGame() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        Random random = new Random(2024);
+        Board board = new Board(9);
+        MoveJournal journal = new MoveJournal(board);
+        try (MoveRecorder recorder = new MoveRecorder(dir)) {
+            recorder.start(board);
+            play(board, journal, recorder, random, 300);
+        }
+        MoveReplayer replayer = replayAll(dir);
+        assertNotNull(replayer.board());
+        GameStoreTest.assertSame(board, replayer.board());
+    }
+
+    @Test
+    public void replayResumesAGameWithItsJournal() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        Random random = new Random(7);
+        Board board = new Board(6);
+        for (int i = 0; i < 8; i++) {
+            board.setElement(random.nextInt(6), random.nextInt(6), 1 + random.nextInt(6));
+        }
+        board.fixGivens();
+        MoveJournal journal = new MoveJournal(board);
+        // moves made before the game was saved, some of them undone
+        for (int i = 0; i < 40; i++) {
+            int row = random.nextInt(6), col = random.nextInt(6);
+            if (!board.isGiven(row, col)) {
+                board.setElement(row, col, random.nextInt(7));
+            }
+        }
+        for (int i = 0; i < 5; i++) {
+            journal.undo();
+        }
+        try (MoveRecorder recorder = new MoveRecorder(dir)) {
+            recorder.start(board, journal);
+            play(board, journal, recorder, random, 100);
+        }
+        GameStoreTest.assertSame(board, replayAll(dir).board());
+    }
+
+    @Test
+    public void rejectsInvalidRecords() {
+        MoveReplayer replayer = new MoveReplayer();
+        assertRejected(replayer, MoveRecorder.encode(0, MoveRecorder.Kind.START, 9, 2, 0));
+        assertRejected(replayer, MoveRecorder.encode(0, MoveRecorder.Kind.START, 63, 1, 0));
+        assertRejected(replayer, -1L);
+        try {
+            replayer.apply(MoveRecorder.encode(0, MoveRecorder.Kind.START, 4, 2, 0));
+        } catch (IOException e) {
+            fail("Rejected a 4x4 board: " + e.getMessage());
+        }
+        assertRejected(replayer, MoveRecorder.encode(0, MoveRecorder.Kind.GIVEN, 4, 0, 1));
+        assertRejected(replayer, MoveRecorder.encode(0, MoveRecorder.Kind.NUMBER, 0, 0, 5));
+    }
+
+    /**
+     * This method plays random moves, undos and redos as the dialog does:
+     * recording each action, then applying it.
+     * */
+    private static void play(Board board, MoveJournal journal, MoveRecorder recorder, Random random, int actions) {
+        int size = board.size();
+        for (int i = 0; i < actions; i++) {
+            double action = random.nextDouble();
+            if (action < 0.1) {
+                recorder.record(MoveRecorder.Kind.UNDO, 0, 0, 0);
+                journal.undo();
+            } else if (action < 0.15) {
+                recorder.record(MoveRecorder.Kind.REDO, 0, 0, 0);
+                journal.redo();
+            } else {
+                int row = random.nextInt(size), col = random.nextInt(size), num = random.nextInt(size + 1);
+                recorder.record(MoveRecorder.Kind.SELECT, row, col, 0);
+                recorder.record(MoveRecorder.Kind.NUMBER, row, col, num);
+                if (!board.isGiven(row, col)) {
+                    board.setElement(row, col, num);
+                }
+            }
+        }
+    }
+
+    private static MoveReplayer replayAll(Path dir) throws IOException {
+        List<Path> logs = MoveRecorder.logs(dir);
+        assertEquals(1, logs.size());
+        MoveReplayer replayer = new MoveReplayer();
+        for (Path log : logs) {
+            replayer.replay(log);
+        }
+        return replayer;
+    }
+
+    private static void assertRejected(MoveReplayer replayer, long record) {
+        try {
+            replayer.apply(record);
+            fail("Applied an invalid record " + Long.toHexString(record));
+        } catch (IOException expected) {
+            // invalid records must fail with an IOException
+        }
+    }
+}
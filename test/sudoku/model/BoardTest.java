@@ -0,0 +1,316 @@
+package sudoku.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Checks the incremental conflict tracking of {@link Board} against a
+ * brute-force recomputation from the cells. Each check plays a seeded
+ * random walk of moves, undos and redos around a known solution, and after
+ * every step compares isValid of every cell, isSolved and hasConflicts
+ * with what the rules say.
+ */
+public class BoardTest {
+
+    private static final int STEPS = 3000;
+
+    private static final int[] KNIGHT = {-2, -1, -2, 1, -1, -2, -1, 2, 1, -2, 1, 2, 2, -1, 2, 1};
+    private static final int[] KING = {-1, -1, -1, 0, -1, 1, 0, -1, 0, 1, 1, -1, 1, 0, 1, 1};
+    private static final int[] ORTHOGONAL = {-1, 0, 0, -1, 0, 1, 1, 0};
+
+    /** A variant rule: the constraint under test and its plain definition. */
+    private interface Rule {
+        Constraint constraint();
+
+        boolean holds(int[] cells, int size, int cell);
+    }
+
+    @Test
+    public void classicBoards() {
+        int[][] shapes = {{4, 2}, {6, 2}, {8, 4}, {9, 3}, {12, 3}, {16, 4}};
+        for (int[] shape : shapes) {
+            int solved = walk(shape[0], shape[1], 17 * shape[0], false);
+            assertTrue("No solved board reached on size " + shape[0], solved > 0);
+        }
+    }
+
+    @Test
+    public void killerBoards() {
+        for (int size : new int[] {4, 6, 9}) {
+            int solved = walk(size, size == 9 ? 3 : 2, 31 * size, true);
+            assertTrue("No solved killer board reached on size " + size, solved > 0);
+        }
+    }
+
+    @Test
+    public void diagonals() {
+        for (int size : new int[] {4, 9}) {
+            walk(size, size == 9 ? 3 : 2, 41 * size, false,
+                    region(mainDiagonalCells(size)), region(antiDiagonalCells(size)));
+        }
+    }
+
+    @Test
+    public void neighborRules() {
+        walk(9, 3, 51, false, neighbors(NeighborRule.antiKnight(), KNIGHT, false));
+        walk(6, 2, 52, false, neighbors(NeighborRule.antiKing(), KING, false));
+        walk(6, 2, 53, false, neighbors(NeighborRule.nonConsecutive(), ORTHOGONAL, true));
+        walk(4, 2, 54, false, neighbors(NeighborRule.nonConsecutive(), ORTHOGONAL, true));
+    }
+
+    @Test
+    public void mixedRules() {
+        walk(9, 3, 61, true, region(mainDiagonalCells(9)),
+                neighbors(NeighborRule.antiKnight(), KNIGHT, false), region(new int[] {0, 10, 20, 30, 40}));
+        walk(6, 2, 62, true, neighbors(NeighborRule.nonConsecutive(), ORTHOGONAL, true),
+                neighbors(NeighborRule.antiKing(), KING, false));
+    }
+
+    /**
+     * This method plays a random walk on a board with the given rules and
+     * checks it after every step.
+     * @param size This is the size of the board.
+     * @param boxRows This is the height of a sub-grid.
+     * @param seed This is the seed of the walk.
+     * @param cages This is whether to add cages summing up to the solution.
+     * @param extra These are further variant rules.
+     * @return Returns the number of steps after which the board was solved.
+     * */
+    private static int walk(int size, int boxRows, long seed, boolean cages, Rule... extra) {
+        Random random = new Random(seed);
+        int[] solution = solution(size, boxRows, random);
+        List<Rule> rules = new ArrayList<>();
+        if (cages) {
+            rules.addAll(cages(solution, size, random));
+        }
+        for (Rule rule : extra) {
+            rules.add(rule);
+        }
+        Constraint[] constraints = new Constraint[rules.size()];
+        for (int i = 0; i < constraints.length; i++) {
+            constraints[i] = rules.get(i).constraint();
+        }
+        Board board = new Board(size, boxRows, size / boxRows, constraints);
+        MoveJournal journal = new MoveJournal(board);
+        int[] cells = new int[size * size];
+        int solved = 0;
+        for (int step = 0; step < STEPS; step++) {
+            double move = random.nextDouble();
+            if (move < 0.05) {
+                journal.undo();
+            } else if (move < 0.08) {
+                journal.redo();
+            } else {
+                int cell = random.nextInt(cells.length);
+                int num = random.nextInt(size + 1);
+                if (move < 0.75) {
+                    // mostly repair a wrong cell, so that the walk stays near the solution
+                    int wrong = wrongCell(board, solution, random);
+                    if (wrong >= 0) {
+                        cell = wrong;
+                        num = solution[wrong];
+                    }
+                }
+                board.setElement(cell / size, cell % size, num);
+            }
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] = board.getElement(i / size, i % size);
+            }
+            solved += check(board, cells, boxRows, rules, "seed " + seed + ", step " + step) ? 1 : 0;
+        }
+        return solved;
+    }
+
+    /** Return a random cell that does not hold its number of the solution, or -1. */
+    private static int wrongCell(Board board, int[] solution, Random random) {
+        int size = board.size();
+        int start = random.nextInt(solution.length);
+        for (int i = 0; i < solution.length; i++) {
+            int cell = (start + i) % solution.length;
+            if (board.getElement(cell / size, cell % size) != solution[cell]) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * This method compares the state of the board with a recomputation.
+     * @param board This is the board.
+     * @param cells These are its numbers.
+     * @param boxRows This is the height of a sub-grid.
+     * @param rules These are its variant rules.
+     * @param where This describes the step for failure messages.
+     * @return Returns if the board is solved.
+     * */
+    private static boolean check(Board board, int[] cells, int boxRows, List<Rule> rules, String where) {
+        int size = board.size();
+        boolean solved = true, conflicts = false;
+        for (int cell = 0; cell < cells.length; cell++) {
+            boolean valid = isValid(cells, size, boxRows, rules, cell);
+            assertEquals("isValid of cell " + cell + " at " + where, valid, board.isValid(cell / size, cell % size));
+            solved &= valid;
+            conflicts |= cells[cell] != 0 && !valid;
+        }
+        assertEquals("isSolved at " + where, solved, board.isSolved());
+        assertEquals("hasConflicts at " + where, conflicts, board.hasConflicts());
+        return solved;
+    }
+
+    /** Return if a cell holds a number that breaks no rule, by scanning its units. */
+    private static boolean isValid(int[] cells, int size, int boxRows, List<Rule> rules, int cell) {
+        int num = cells[cell];
+        if (num < 1 || num > size) {
+            return false;
+        }
+        int boxCols = size / boxRows;
+        int row = cell / size, col = cell % size;
+        for (int other = 0; other < cells.length; other++) {
+            int r = other / size, c = other % size;
+            boolean peer = r == row || c == col || (r / boxRows == row / boxRows && c / boxCols == col / boxCols);
+            if (other != cell && peer && cells[other] == num) {
+                return false;
+            }
+        }
+        for (Rule rule : rules) {
+            if (!rule.holds(cells, size, cell)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Return a solution with the given sub-grid height and shuffled numbers. */
+    private static int[] solution(int size, int boxRows, Random random) {
+        int boxCols = size / boxRows;
+        int[] numbers = new int[size];
+        for (int i = 0; i < size; i++) {
+            numbers[i] = i + 1;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = numbers[i];
+            numbers[i] = numbers[j];
+            numbers[j] = t;
+        }
+        int[] solution = new int[size * size];
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                solution[row * size + col] = numbers[((row % boxRows) * boxCols + row / boxRows + col) % size];
+            }
+        }
+        return solution;
+    }
+
+    /** Return cages of one to three cells along the rows, summing up to the solution. */
+    private static List<Rule> cages(int[] solution, int size, Random random) {
+        List<Rule> cages = new ArrayList<>();
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; ) {
+                int length = Math.min(1 + random.nextInt(3), size - col);
+                int[] cage = new int[length];
+                int sum = 0;
+                for (int i = 0; i < length; i++) {
+                    cage[i] = row * size + col + i;
+                    sum += solution[cage[i]];
+                }
+                cages.add(cage(sum, cage));
+                col += length;
+            }
+        }
+        return cages;
+    }
+
+    private static Rule cage(int sum, int[] cage) {
+        return new Rule() {
+            @Override
+            public Constraint constraint() {
+                return new KillerCage(sum, cage);
+            }
+
+            @Override
+            public boolean holds(int[] cells, int size, int cell) {
+                int total = 0, filled = 0, same = 0;
+                boolean inside = false;
+                for (int other : cage) {
+                    inside |= other == cell;
+                    total += cells[other];
+                    filled += cells[other] != 0 ? 1 : 0;
+                    same += cells[other] == cells[cell] ? 1 : 0;
+                }
+                if (!inside) {
+                    return true;
+                }
+                // the empty cells need at least 1 each, and a full cage the exact sum
+                boolean fits = total + cage.length - filled <= sum && (filled < cage.length || total == sum);
+                return same == 1 && fits;
+            }
+        };
+    }
+
+    private static Rule region(int[] region) {
+        return new Rule() {
+            @Override
+            public Constraint constraint() {
+                return new AllDifferent(region);
+            }
+
+            @Override
+            public boolean holds(int[] cells, int size, int cell) {
+                boolean inside = false;
+                int same = 0;
+                for (int other : region) {
+                    inside |= other == cell;
+                    same += cells[other] == cells[cell] ? 1 : 0;
+                }
+                return !inside || same == 1;
+            }
+        };
+    }
+
+    private static Rule neighbors(NeighborRule constraint, int[] offsets, boolean consecutive) {
+        return new Rule() {
+            @Override
+            public Constraint constraint() {
+                return constraint;
+            }
+
+            @Override
+            public boolean holds(int[] cells, int size, int cell) {
+                int row = cell / size, col = cell % size;
+                for (int i = 0; i < offsets.length; i += 2) {
+                    int r = row + offsets[i], c = col + offsets[i + 1];
+                    if (r < 0 || r >= size || c < 0 || c >= size || cells[r * size + c] == 0) {
+                        continue;
+                    }
+                    int diff = Math.abs(cells[r * size + c] - cells[cell]);
+                    if (consecutive ? diff == 1 : diff == 0) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        };
+    }
+
+    private static int[] mainDiagonalCells(int size) {
+        int[] cells = new int[size];
+        for (int i = 0; i < size; i++) {
+            cells[i] = i * size + i;
+        }
+        return cells;
+    }
+
+    private static int[] antiDiagonalCells(int size) {
+        int[] cells = new int[size];
+        for (int i = 0; i < size; i++) {
+            cells[i] = i * size + size - 1 - i;
+        }
+        return cells;
+    }
+}